@@ -0,0 +1,106 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  BenchmarkContent                                                    */
+/*                                                                      */
+/*  Content of the files used by the benchmarks, and a drain to read    */
+/*  a loaded file to the end without keeping it in memory.              */
+/* ******************************************************************** */
+package io.camunda.filestorage.benchmark;
+
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.FileRepoFactory;
+import io.camunda.filestorage.FileVariable;
+import io.camunda.filestorage.FileVariableReference;
+import io.camunda.filestorage.storage.StorageDefinition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+public class BenchmarkContent {
+
+    public static final String FILE_NAME = "benchmark.bin";
+    public static final String MIME_TYPE = "application/octet-stream";
+
+    /**
+     * Size of the buffer to drain a file
+     */
+    public static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] TEXT = ("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor "
+            + "incididunt ut labore et dolore magna aliqua. ").getBytes(StandardCharsets.US_ASCII);
+
+    private BenchmarkContent() {
+    }
+
+    /**
+     * Decode a size: 1KB, 64KB, 1MB, 100MB, or a number of bytes
+     *
+     * @param size size as a string
+     * @return the size in bytes
+     */
+    public static int parseSize(String size) {
+        String value = size.trim().toUpperCase();
+        if (value.endsWith("MB"))
+            return Integer.parseInt(value.substring(0, value.length() - 2)) * 1024 * 1024;
+        if (value.endsWith("KB"))
+            return Integer.parseInt(value.substring(0, value.length() - 2)) * 1024;
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Generate a content. The same size gives the same content
+     *
+     * @param size         size in bytes
+     * @param compressible true for a text, which compresses well, false for random bytes
+     * @return the content
+     */
+    public static byte[] generate(int size, boolean compressible) {
+        byte[] content = new byte[size];
+        if (compressible) {
+            for (int i = 0; i < size; i++) {
+                content[i] = TEXT[i % TEXT.length];
+            }
+        } else {
+            new SplittableRandom(size).nextBytes(content);
+        }
+        return content;
+    }
+
+    /**
+     * Save a file in a storage
+     *
+     * @param storageDefinition storage where the file is saved
+     * @param content           content of the file
+     * @return the reference of the file
+     * @throws Exception in case of error
+     */
+    public static FileVariableReference save(StorageDefinition storageDefinition, byte[] content) throws Exception {
+        FileRepoFactory fileRepoFactory = FileRepoFactory.getInstance();
+        FileVariable fileVariable = fileRepoFactory.createFileVariable(storageDefinition);
+        fileVariable.setName(FILE_NAME);
+        fileVariable.setMimeType(MIME_TYPE);
+        fileVariable.setContent(FileContent.fromBytes(content));
+        return fileRepoFactory.saveFileVariable(fileVariable, null);
+    }
+
+    /**
+     * Read the content to the end. A benchmark reads the whole file, as a worker does, without keeping it in memory
+     *
+     * @param fileVariable file loaded
+     * @param buffer       buffer to read the content
+     * @return number of bytes read
+     * @throws IOException in case of error
+     */
+    public static long drain(FileVariable fileVariable, byte[] buffer) throws IOException {
+        long total = 0;
+        try (InputStream inputStream = fileVariable.getContent().openStream()) {
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                total += count;
+            }
+        }
+        return total;
+    }
+}
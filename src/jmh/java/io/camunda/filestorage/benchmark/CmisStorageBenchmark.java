@@ -0,0 +1,120 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  CmisStorageBenchmark                                                */
+/*                                                                      */
+/*  CMIS storage against an OpenCMIS in-memory server (browser          */
+/*  binding). The server runs in an embedded Jetty, started in the      */
+/*  setup. To measure another server, give its access with the          */
+/*  parameters, for example                                             */
+/*  -p cmisUrl=http://localhost:8080/inmemory/browser                   */
+/*  The folder is created in the repository if it does not exist.      */
+/* ******************************************************************** */
+package io.camunda.filestorage.benchmark;
+
+import io.camunda.filestorage.cmis.CmisFactoryConnection;
+import io.camunda.filestorage.cmis.CmisParameters;
+import io.camunda.filestorage.storage.StorageCMIS;
+import io.camunda.filestorage.storage.StorageDefinition;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceFactoryImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+import org.apache.chemistry.opencmis.inmemory.types.DefaultTypeSystemCreator;
+import org.apache.chemistry.opencmis.server.impl.CmisRepositoryContextListener;
+import org.apache.chemistry.opencmis.server.impl.browser.CmisBrowserBindingServlet;
+import org.apache.chemistry.opencmis.server.impl.browser.token.TokenCallContextHandler;
+import org.apache.chemistry.opencmis.server.shared.AbstractCmisHttpServlet;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class CmisStorageBenchmark extends StorageBenchmark {
+
+    /**
+     * Start an in-memory server in this JVM
+     */
+    public static final String EMBEDDED_SERVER = "embedded";
+
+    @Param({EMBEDDED_SERVER})
+    public String cmisUrl;
+
+    @Param({"A1"})
+    public String cmisRepository;
+
+    @Param({"test"})
+    public String cmisUser;
+
+    @Param({"test"})
+    public String cmisPassword;
+
+    @Param({"/filestorage-benchmark"})
+    public String cmisFolder;
+
+    private Server server;
+    private InMemoryServiceFactoryImpl serviceFactory;
+
+    @Override
+    protected StorageDefinition createStorageDefinition() throws Exception {
+        String url = EMBEDDED_SERVER.equals(cmisUrl) ? startServer() : cmisUrl;
+        CmisParameters cmisParameters = CmisParameters.getBrowserConnection(url, cmisRepository, cmisUser, cmisPassword);
+        CmisFactoryConnection.getInstance().execute(cmisParameters, cmisConnection -> {
+            try {
+                return cmisConnection.getFolderByPath(cmisFolder);
+            } catch (CmisObjectNotFoundException e) {
+                Folder rootFolder = cmisConnection.getSession().getRootFolder();
+                return rootFolder.createFolder(Map.of(PropertyIds.OBJECT_TYPE_ID, "cmis:folder",
+                        PropertyIds.NAME, cmisFolder.substring(cmisFolder.lastIndexOf('/') + 1)));
+            }
+        });
+        return StorageDefinition.decodeFromString(
+                StorageCMIS.getStorageDefinitionString(url, cmisRepository, cmisUser, cmisPassword, cmisFolder));
+    }
+
+    @Override
+    protected void cleanStorage() throws Exception {
+        if (server != null) {
+            server.stop();
+            serviceFactory.destroy();
+            server = null;
+        }
+    }
+
+    /**
+     * Start the in-memory repository behind the browser binding servlet, as the OpenCMIS war does, on a free port
+     *
+     * @return the URL of the browser binding
+     */
+    private String startServer() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(ConfigConstants.REPOSITORY_ID, cmisRepository);
+        parameters.put(ConfigConstants.REPOSITORY_CLASS, StoreManagerImpl.class.getName());
+        parameters.put(ConfigConstants.TYPE_CREATOR_CLASS, DefaultTypeSystemCreator.class.getName());
+        parameters.put(ConfigConstants.USE_REPOSITORY_FILER, "false");
+        serviceFactory = new InMemoryServiceFactoryImpl();
+        serviceFactory.init(parameters);
+
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/inmemory");
+        context.setAttribute(CmisRepositoryContextListener.SERVICES_FACTORY, serviceFactory);
+        ServletHolder browserBinding = new ServletHolder(new CmisBrowserBindingServlet());
+        browserBinding.setInitParameter(AbstractCmisHttpServlet.PARAM_CALL_CONTEXT_HANDLER, TokenCallContextHandler.class.getName());
+        context.addServlet(browserBinding, "/browser/*");
+
+        server = new Server(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.setHandler(context);
+        server.start();
+        return "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + "/inmemory/browser";
+    }
+}
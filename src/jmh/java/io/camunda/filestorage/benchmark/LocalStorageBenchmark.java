@@ -0,0 +1,50 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  LocalStorageBenchmark                                               */
+/*                                                                      */
+/*  JSON, FOLDER and TEMPFOLDER. The storage parameter accepts the     */
+/*  options of the storage definition, for example                      */
+/*  -p storage=FOLDER+FSYNC=GROUP,FOLDER+DEDUP,TEMPFOLDER+SHARD         */
+/*  A FOLDER storage is created in a new temporary folder.              */
+/* ******************************************************************** */
+package io.camunda.filestorage.benchmark;
+
+import io.camunda.filestorage.storage.StorageDefinition;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+public class LocalStorageBenchmark extends StorageBenchmark {
+
+    @Param({"JSON", "FOLDER", "TEMPFOLDER"})
+    public String storage;
+
+    private Path folder;
+
+    @Override
+    protected StorageDefinition createStorageDefinition() throws Exception {
+        if (storage.startsWith(StorageDefinition.StorageDefinitionType.FOLDER.name())) {
+            folder = Files.createTempDirectory("filestorage-benchmark");
+            return StorageDefinition.decodeFromString(storage + StorageDefinition.STORAGE_DEFINITION_DELIMITATEUR + folder);
+        }
+        return StorageDefinition.decodeFromString(storage);
+    }
+
+    @Override
+    protected void cleanStorage() throws IOException {
+        if (folder == null)
+            return;
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
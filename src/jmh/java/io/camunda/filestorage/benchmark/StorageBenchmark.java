@@ -0,0 +1,113 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageBenchmark                                                    */
+/*                                                                      */
+/*  saveFileVariable and loadFileVariable on a storage, per file size.  */
+/*  Throughput and latency (SampleTime gives the percentiles); run      */
+/*  with "-prof gc" for the allocation, "-t <n>" for concurrent calls.  */
+/*  The saved files are purged after each iteration, out of the         */
+/*  measure, so a long run does not fill the storage.                   */
+/* ******************************************************************** */
+package io.camunda.filestorage.benchmark;
+
+import io.camunda.filestorage.FileRepoFactory;
+import io.camunda.filestorage.FileVariable;
+import io.camunda.filestorage.FileVariableReference;
+import io.camunda.filestorage.storage.StorageDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public abstract class StorageBenchmark {
+
+    @Param({"1KB", "64KB", "1MB", "10MB", "100MB"})
+    public String fileSize;
+
+    protected byte[] content;
+    protected StorageDefinition storageDefinition;
+    /**
+     * File read by the load benchmark
+     */
+    protected FileVariableReference loadReference;
+
+    /**
+     * @return the storage to measure
+     * @throws Exception if the storage can't be prepared
+     */
+    protected abstract StorageDefinition createStorageDefinition() throws Exception;
+
+    /**
+     * Release what the storage created for the benchmark
+     *
+     * @throws Exception in case of error
+     */
+    protected void cleanStorage() throws Exception {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        content = BenchmarkContent.generate(BenchmarkContent.parseSize(fileSize), false);
+        storageDefinition = createStorageDefinition();
+        loadReference = BenchmarkContent.save(storageDefinition, content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        FileRepoFactory.getInstance().purgeFileVariable(loadReference, null);
+        cleanStorage();
+    }
+
+    @Benchmark
+    public FileVariableReference save(SavedFiles savedFiles) throws Exception {
+        FileVariableReference reference = BenchmarkContent.save(storageDefinition, content);
+        savedFiles.references.add(reference);
+        return reference;
+    }
+
+    @Benchmark
+    public long load(ReadBuffer readBuffer) throws Exception {
+        FileVariable fileVariable = FileRepoFactory.getInstance().loadFileVariable(loadReference, null);
+        return BenchmarkContent.drain(fileVariable, readBuffer.buffer);
+    }
+
+    /**
+     * Files saved by a thread, purged after the iteration: a teardown per invocation would add its own overhead to a
+     * call of a few microseconds
+     */
+    @State(Scope.Thread)
+    public static class SavedFiles {
+        final List<FileVariableReference> references = new ArrayList<>();
+
+        @TearDown(Level.Iteration)
+        public void purge() throws Exception {
+            for (FileVariableReference reference : references)
+                FileRepoFactory.getInstance().purgeFileVariable(reference, null);
+            references.clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReadBuffer {
+        final byte[] buffer = new byte[BenchmarkContent.DRAIN_BUFFER_SIZE];
+    }
+}
@@ -0,0 +1,72 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageJSONCodecBenchmark                                           */
+/*                                                                      */
+/*  Encode and decode of a fileVariable in JSON, with and without the   */
+/*  compact mode. Run with "-prof gc": the allocation per operation     */
+/*  must stay close to the size of the JSON.                            */
+/* ******************************************************************** */
+package io.camunda.filestorage.benchmark;
+
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.FileVariable;
+import io.camunda.filestorage.storage.StorageDefinition;
+import io.camunda.filestorage.storage.StorageJSONCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class StorageJSONCodecBenchmark {
+
+    @Param({"1KB", "64KB", "1MB", "10MB"})
+    public String fileSize;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    /**
+     * A text compresses: the compact mode deflates it. Random bytes does not: the compact mode keeps them
+     */
+    @Param({"text/plain", "application/octet-stream"})
+    public String mimeType;
+
+    private FileVariable fileVariable;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fileVariable = new FileVariable(new StorageDefinition(StorageDefinition.StorageDefinitionType.JSON));
+        fileVariable.setName(BenchmarkContent.FILE_NAME);
+        fileVariable.setMimeType(mimeType);
+        fileVariable.setContent(FileContent.fromBytes(
+                BenchmarkContent.generate(BenchmarkContent.parseSize(fileSize), mimeType.startsWith("text/"))));
+        json = StorageJSONCodec.encode(fileVariable, compact);
+    }
+
+    @Benchmark
+    public String encode() throws Exception {
+        return StorageJSONCodec.encode(fileVariable, compact);
+    }
+
+    @Benchmark
+    public FileVariable decode() throws Exception {
+        return StorageJSONCodec.decode(json);
+    }
+}
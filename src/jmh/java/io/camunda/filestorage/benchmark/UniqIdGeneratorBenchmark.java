@@ -0,0 +1,44 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  UniqIdGeneratorBenchmark                                            */
+/*                                                                      */
+/*  Cost of the uniq identifier of FOLDER and TEMPFOLDER files, with    */
+/*  "-t <n>" to check it does not degrade with the number of threads.   */
+/*  The random UUID is the reference of a generator with shared state.  */
+/* ******************************************************************** */
+package io.camunda.filestorage.benchmark;
+
+import io.camunda.filestorage.NodeUniqIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UniqIdGeneratorBenchmark {
+
+    private final NodeUniqIdGenerator nodeUniqIdGenerator = new NodeUniqIdGenerator("benchmark");
+
+    @Benchmark
+    public String nodeUniqId() {
+        return nodeUniqIdGenerator.generateUniqId();
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return "_" + UUID.randomUUID();
+    }
+}
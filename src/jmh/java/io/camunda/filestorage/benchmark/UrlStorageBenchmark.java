@@ -0,0 +1,82 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  UrlStorageBenchmark                                                 */
+/*                                                                      */
+/*  URL storage against a local embedded HTTP server. The URL storage   */
+/*  is read only: only loadFileVariable is measured.                    */
+/* ******************************************************************** */
+package io.camunda.filestorage.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import io.camunda.filestorage.FileRepoFactory;
+import io.camunda.filestorage.FileVariable;
+import io.camunda.filestorage.FileVariableReference;
+import io.camunda.filestorage.storage.StorageURL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class UrlStorageBenchmark {
+
+    @Param({"1KB", "64KB", "1MB", "10MB", "100MB"})
+    public String fileSize;
+
+    private HttpServer httpServer;
+    private ExecutorService serverExecutor;
+    private FileVariableReference loadReference;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] content = BenchmarkContent.generate(BenchmarkContent.parseSize(fileSize), false);
+        serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        httpServer.setExecutor(serverExecutor);
+        httpServer.createContext("/" + BenchmarkContent.FILE_NAME, exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", BenchmarkContent.MIME_TYPE);
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(content);
+            }
+        });
+        httpServer.start();
+
+        loadReference = new FileVariableReference();
+        loadReference.storageDefinition = StorageURL.getStorageDefinitionString();
+        loadReference.content = "http://localhost:" + httpServer.getAddress().getPort() + "/" + BenchmarkContent.FILE_NAME;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpServer.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public long load(StorageBenchmark.ReadBuffer readBuffer) throws Exception {
+        FileVariable fileVariable = FileRepoFactory.getInstance().loadFileVariable(loadReference, null);
+        return BenchmarkContent.drain(fileVariable, readBuffer.buffer);
+    }
+}
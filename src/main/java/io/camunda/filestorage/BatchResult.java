@@ -0,0 +1,45 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  BatchResult                                                         */
+/*                                                                      */
+/*  Result of one item in a batch operation (loadFileVariables,         */
+/*  saveFileVariables, purgeFileVariables). An item may fail without    */
+/*  failing the complete batch.                                         */
+/* ******************************************************************** */
+package io.camunda.filestorage;
+
+public class BatchResult<T> {
+    private final T value;
+    private final Exception error;
+
+    private BatchResult(T value, Exception error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T> BatchResult<T> success(T value) {
+        return new BatchResult<>(value, null);
+    }
+
+    public static <T> BatchResult<T> failure(Exception error) {
+        return new BatchResult<>(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the value of the operation, null if the operation failed
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * @return the error, null if the operation succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+}
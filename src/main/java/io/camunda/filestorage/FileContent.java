@@ -0,0 +1,421 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  FileContent                                                         */
+/*                                                                      */
+/*  Content of a FileVariable. The content knows its length when the    */
+/*  storage knows it, and can be opened multiple times without loading  */
+/*  the complete file in memory (except for a one-shot InputStream)     */
+/* ******************************************************************** */
+package io.camunda.filestorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public abstract class FileContent {
+
+    /**
+     * The length is not known by the storage (a stream from an HTTP server without Content-Length for example)
+     */
+    public static final long UNKNOWN_LENGTH = -1;
+
+    /**
+     * Content in memory
+     *
+     * @param value the content
+     * @return the FileContent
+     */
+    public static FileContent fromBytes(byte[] value) {
+        return new BytesContent(value, false);
+    }
+
+    /**
+     * Content in memory, shared with other contents (a cache, for example). The caller never gets the array:
+     * readAllBytes() returns a copy, so a caller modifying it does not change the shared content
+     *
+     * @param value the content, not modified after this call
+     * @return the FileContent
+     */
+    public static FileContent fromSharedBytes(byte[] value) {
+        return new BytesContent(value, true);
+    }
+
+    /**
+     * Content in a file. The file is opened only when the content is read
+     *
+     * @param path path to the file
+     * @return the FileContent
+     */
+    public static FileContent fromPath(Path path) {
+        return new PathContent(path);
+    }
+
+    /**
+     * Content accessible via a supplier: each call to openStream() call the supplier again
+     *
+     * @param supplier supplier to open the stream
+     * @param length   length, UNKNOWN_LENGTH if the length is not known
+     * @return the FileContent
+     */
+    public static FileContent fromSupplier(StreamSupplier supplier, long length) {
+        return new SupplierContent(supplier, length);
+    }
+
+    /**
+     * Content accessible via a supplier able to read a range of the content (a CMIS document, for example)
+     *
+     * @param supplier supplier to open the stream on a range
+     * @param length   length, UNKNOWN_LENGTH if the length is not known
+     * @return the FileContent
+     */
+    public static FileContent fromRangeSupplier(RangeStreamSupplier supplier, long length) {
+        return new RangeSupplierContent(supplier, length);
+    }
+
+    /**
+     * Content given as an InputStream. The stream can be read only once: isRepeatable() return false
+     *
+     * @param inputStream the stream
+     * @param length      length, UNKNOWN_LENGTH if the length is not known
+     * @return the FileContent
+     */
+    public static FileContent fromStream(InputStream inputStream, long length) {
+        return new StreamContent(inputStream, length);
+    }
+
+    /**
+     * Return the length of the content
+     *
+     * @return the length in bytes, or UNKNOWN_LENGTH
+     */
+    public abstract long getLength();
+
+    /**
+     * Open a new stream on the content. Caller is responsible to close the InputStream
+     *
+     * @return an InputStream
+     * @throws IOException if the content can't be opened
+     */
+    public abstract InputStream openStream() throws IOException;
+
+    /**
+     * Open a stream on a range of the content. Caller is responsible to close the InputStream.
+     * By default, the content is opened and the first bytes are skipped: storages able to read a range override it.
+     *
+     * @param offset first byte to read
+     * @param length number of bytes to read, UNKNOWN_LENGTH to read until the end
+     * @return an InputStream
+     * @throws IOException if the content can't be opened
+     */
+    public InputStream openStream(long offset, long length) throws IOException {
+        InputStream inputStream = openStream();
+        try {
+            inputStream.skipNBytes(offset);
+        } catch (EOFException e) {
+            inputStream.close();
+            return InputStream.nullInputStream();
+        }
+        return length < 0 ? inputStream : new LimitedInputStream(inputStream, length);
+    }
+
+    /**
+     * Content can be opened multiple times
+     *
+     * @return true if openStream() can be called more than one time
+     */
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * Return true if the content is in memory
+     *
+     * @return true if the content is a byte[]
+     */
+    public boolean isInMemory() {
+        return false;
+    }
+
+    /**
+     * Return the local file behind the content, if any
+     *
+     * @return the path, or null if the content is not a local file
+     */
+    public Path getPath() {
+        return null;
+    }
+
+    /**
+     * Copy the content into a channel
+     *
+     * @param channel channel to write into
+     * @return the number of bytes copied
+     * @throws IOException in case of error
+     */
+    public long transferTo(WritableByteChannel channel) throws IOException {
+        try (InputStream inputStream = openStream()) {
+            return inputStream.transferTo(Channels.newOutputStream(channel));
+        }
+    }
+
+    /**
+     * Read the complete content in memory
+     *
+     * @return the content
+     * @throws IOException in case of error
+     */
+    public byte[] readAllBytes() throws IOException {
+        try (InputStream inputStream = openStream()) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    @FunctionalInterface
+    public interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RangeStreamSupplier {
+        /**
+         * @param offset first byte to read
+         * @param length number of bytes to read, UNKNOWN_LENGTH to read until the end
+         * @return the stream
+         * @throws IOException in case of error
+         */
+        InputStream open(long offset, long length) throws IOException;
+    }
+
+    /* ******************************************************************** */
+    /*                                                                      */
+    /*  Implementations                                                     */
+    /*                                                                      */
+    /* ******************************************************************** */
+
+    private static class BytesContent extends FileContent {
+        private final byte[] value;
+        private final boolean shared;
+
+        BytesContent(byte[] value, boolean shared) {
+            this.value = value;
+            this.shared = shared;
+        }
+
+        @Override
+        public long getLength() {
+            return value.length;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(value);
+        }
+
+        @Override
+        public InputStream openStream(long offset, long length) {
+            int start = (int) Math.min(offset, value.length);
+            int count = length < 0 ? value.length - start : (int) Math.min(length, value.length - start);
+            return new ByteArrayInputStream(value, start, count);
+        }
+
+        @Override
+        public boolean isInMemory() {
+            return true;
+        }
+
+        @Override
+        public long transferTo(WritableByteChannel channel) throws IOException {
+            // read only: the channel can't modify a shared array
+            ByteBuffer buffer = shared ? ByteBuffer.wrap(value).asReadOnlyBuffer() : ByteBuffer.wrap(value);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return value.length;
+        }
+
+        @Override
+        public byte[] readAllBytes() {
+            return shared ? value.clone() : value;
+        }
+    }
+
+    private static class PathContent extends FileContent {
+        private final Path path;
+
+        PathContent(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public long getLength() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                return UNKNOWN_LENGTH;
+            }
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public InputStream openStream(long offset, long length) throws IOException {
+            SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ);
+            channel.position(offset);
+            InputStream inputStream = Channels.newInputStream(channel);
+            return length < 0 ? inputStream : new LimitedInputStream(inputStream, length);
+        }
+
+        @Override
+        public long transferTo(WritableByteChannel channel) throws IOException {
+            try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = fileChannel.size();
+                long position = 0;
+                while (position < size) {
+                    position += fileChannel.transferTo(position, size - position, channel);
+                }
+                return position;
+            }
+        }
+
+        @Override
+        public Path getPath() {
+            return path;
+        }
+    }
+
+    private static class SupplierContent extends FileContent {
+        private final StreamSupplier supplier;
+        private final long length;
+
+        SupplierContent(StreamSupplier supplier, long length) {
+            this.supplier = supplier;
+            this.length = length;
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return supplier.open();
+        }
+    }
+
+    private static class RangeSupplierContent extends FileContent {
+        private final RangeStreamSupplier supplier;
+        private final long length;
+
+        RangeSupplierContent(RangeStreamSupplier supplier, long length) {
+            this.supplier = supplier;
+            this.length = length;
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return supplier.open(0, UNKNOWN_LENGTH);
+        }
+
+        @Override
+        public InputStream openStream(long offset, long length) throws IOException {
+            return supplier.open(offset, length);
+        }
+    }
+
+    private static class StreamContent extends FileContent {
+        private final long length;
+        private InputStream inputStream;
+
+        StreamContent(InputStream inputStream, long length) {
+            this.inputStream = inputStream;
+            this.length = length;
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public synchronized InputStream openStream() throws IOException {
+            if (inputStream == null)
+                throw new IOException("Content is a stream, and it was already consumed");
+            InputStream result = inputStream;
+            inputStream = null;
+            return result;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+    }
+
+    /**
+     * Stream limited to a number of bytes
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream inputStream, long limit) {
+            super(inputStream);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0)
+                return -1;
+            int value = super.read();
+            if (value != -1)
+                remaining--;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0)
+                return -1;
+            int count = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (count > 0)
+                remaining -= count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -15,22 +15,85 @@
 /*       saveFileVariable( FileVariable ): save the file in the storage */
 /*          the method return a FileVariableReference                   */
 /*       loadFileVariable( FileVariableReference): load the file        */
+/*       copyFileVariable / moveFileVariable: change the storage        */
+/*       xxxAsync(): same operations, executed on a virtual thread      */
+/*       xxxFileVariables(List): batch operations                       */
 /* ******************************************************************** */
 package io.camunda.filestorage;
 
 import io.camunda.connector.api.outbound.OutboundConnectorContext;
+import io.camunda.filestorage.metrics.MeteredContent;
+import io.camunda.filestorage.metrics.StorageMetrics;
+import io.camunda.filestorage.metrics.StorageMetricsRegistry;
 import io.camunda.filestorage.storage.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Random;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 public class FileRepoFactory {
-    private final Random rand = new Random();
+    /**
+     * A storage not used during this delay is removed from the registry
+     */
+    public static final Duration DEFAULT_STORAGE_IDLE_TIMEOUT = Duration.ofMinutes(10);
+    /**
+     * Number of items of the same storage processed in parallel by a batch operation
+     */
+    public static final int DEFAULT_BATCH_PARALLELISM = 4;
+
+    private static final FileRepoFactory singletonFileRepoFactory = new FileRepoFactory();
     Logger logger = LoggerFactory.getLogger(FileRepoFactory.class.getName());
 
+    /**
+     * Registry of initialized storages, key is the storage signature
+     */
+    private final Map<String, StorageEntry> allStorages = new ConcurrentHashMap<>();
+    private volatile long storageIdleTimeoutMs = DEFAULT_STORAGE_IDLE_TIMEOUT.toMillis();
+    private volatile long lastEvictionCheck = System.currentTimeMillis();
+    private volatile int batchParallelism = DEFAULT_BATCH_PARALLELISM;
+    /**
+     * Executor used by the asynchronous API when the caller does not provide one
+     */
+    private final ExecutorService asyncExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    /**
+     * Read cache, used by the storages with the readCache option
+     */
+    private final StorageCache storageCache = new StorageCache();
+    /**
+     * Sweeper of the TEMPFOLDER storage, started by the application
+     */
+    private final StorageTempFolderJanitor tempFolderJanitor = new StorageTempFolderJanitor(StorageTempFolder.getStorageFolder());
+    private volatile UniqIdGenerator uniqIdGenerator = new NodeUniqIdGenerator();
+    /**
+     * Instrumentation of the load, save and purge operations
+     */
+    private volatile StorageMetrics storageMetrics = new StorageMetricsRegistry();
+
+    /**
+     * Return the shared factory. The factory is thread safe.
+     *
+     * @return the factory
+     */
     public static FileRepoFactory getInstance() {
-        return new FileRepoFactory();
+        return singletonFileRepoFactory;
     }
 
     /**
@@ -71,9 +134,7 @@ public class FileRepoFactory {
         }
 
         Storage storage = getStorage(fileVariableReference.getStorageDefinitionObject(), outboundConnectorContext);
-        FileVariable fileVariable = storage.fromStorage(fileVariableReference);
-        fileVariable.setOriginalName(fileVariableReference.originalFileName);
-        return fileVariable;
+        return loadFromStorage(storage, fileVariableReference);
     }
 
     /**
@@ -89,12 +150,53 @@ public class FileRepoFactory {
             return null;
         }
         Storage storage = getStorage(fileVariable.getStorageDefinition(), outboundConnectorContext);
-        FileVariableReference fileVariableReference = storage.toStorage(fileVariable, null);
+        return saveToStorage(storage, fileVariable);
+    }
 
-        // override the storageDefinition to be sure
-        fileVariableReference.storageDefinition = fileVariable.getStorageDefinition().encodeToString();
-        fileVariableReference.originalFileName = fileVariable.getOriginalName();
-        return fileVariableReference;
+    /**
+     * Copy a file to another storage. The content is never loaded in memory: a local file is copied to a local
+     * storage with FileChannel.transferTo, else the content is streamed through a fixed-size buffer.
+     *
+     * @param fileVariableReference    reference to the file to copy
+     * @param targetStorageDefinition  storage where the file is copied
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @return the reference to the copy
+     * @throws Exception if an error arrive
+     */
+    public FileVariableReference copyFileVariable(FileVariableReference fileVariableReference, StorageDefinition targetStorageDefinition, OutboundConnectorContext outboundConnectorContext) throws Exception {
+        FileVariable fileVariable = loadFileVariable(fileVariableReference, outboundConnectorContext);
+        if (fileVariable == null)
+            return null;
+        fileVariable.setStorageDefinition(targetStorageDefinition);
+        return saveFileVariable(fileVariable, outboundConnectorContext);
+    }
+
+    /**
+     * Move a file to another storage. When the source and the target are on the same local file system, the file is
+     * renamed atomically. Else, the file is copied, then the source is purged.
+     *
+     * @param fileVariableReference    reference to the file to move
+     * @param targetStorageDefinition  storage where the file is moved
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @return the reference in the target storage
+     * @throws Exception if an error arrive
+     */
+    public FileVariableReference moveFileVariable(FileVariableReference fileVariableReference, StorageDefinition targetStorageDefinition, OutboundConnectorContext outboundConnectorContext) throws Exception {
+        FileVariable fileVariable = loadFileVariable(fileVariableReference, outboundConnectorContext);
+        if (fileVariable == null)
+            return null;
+        fileVariable.setStorageDefinition(targetStorageDefinition);
+
+        Path sourcePath = fileVariable.getContent() == null ? null : fileVariable.getContent().getPath();
+        if (sourcePath != null) {
+            Storage targetStorage = getStorage(targetStorageDefinition, outboundConnectorContext);
+            FileVariableReference fileVariableReferenceMoved = targetStorage.moveToStorage(fileVariable, sourcePath);
+            if (fileVariableReferenceMoved != null)
+                return completeReference(fileVariableReferenceMoved, fileVariable);
+        }
+        FileVariableReference fileVariableReferenceCopied = saveFileVariable(fileVariable, outboundConnectorContext);
+        purgeFileVariable(fileVariableReference, outboundConnectorContext);
+        return fileVariableReferenceCopied;
     }
 
     /**
@@ -110,9 +212,330 @@ public class FileRepoFactory {
             logger.warn("FileRepoFactory.purgeFileVariable : the fileVariableReference must not be null - no purge");
             return true;
         }
-        StorageDefinition storageDefinition = StorageDefinition.decodeFromString(fileVariableReference.storageDefinition);
+        StorageDefinition storageDefinition = fileVariableReference.getStorageDefinitionObject();
         Storage storage = getStorage(storageDefinition, outboundConnectorContext);
-        return storage.purgeStorage(fileVariableReference);
+        return purgeFromStorage(storage, fileVariableReference);
+    }
+
+    /* ******************************************************************** */
+    /*                                                                      */
+    /*  Asynchronous API                                                    */
+    /*                                                                      */
+    /*  Operations run on a virtual thread by default. The caller can      */
+    /*  provide its own executor.                                           */
+    /* ******************************************************************** */
+
+    /**
+     * Load the fileVariable asynchronously, on a virtual thread
+     *
+     * @param fileVariableReference    information to access the file
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @return a future on the fileVariable
+     */
+    public CompletableFuture<FileVariable> loadFileVariableAsync(FileVariableReference fileVariableReference, OutboundConnectorContext outboundConnectorContext) {
+        return loadFileVariableAsync(fileVariableReference, outboundConnectorContext, asyncExecutor);
+    }
+
+    /**
+     * Load the fileVariable asynchronously
+     *
+     * @param fileVariableReference    information to access the file
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @param executor                 executor to run the operation
+     * @return a future on the fileVariable
+     */
+    public CompletableFuture<FileVariable> loadFileVariableAsync(FileVariableReference fileVariableReference, OutboundConnectorContext outboundConnectorContext, Executor executor) {
+        return supplyAsync(() -> loadFileVariable(fileVariableReference, outboundConnectorContext), executor);
+    }
+
+    /**
+     * Save the fileVariable asynchronously, on a virtual thread
+     *
+     * @param fileVariable             file Variable to save
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @return a future on the reference
+     */
+    public CompletableFuture<FileVariableReference> saveFileVariableAsync(FileVariable fileVariable, OutboundConnectorContext outboundConnectorContext) {
+        return saveFileVariableAsync(fileVariable, outboundConnectorContext, asyncExecutor);
+    }
+
+    /**
+     * Save the fileVariable asynchronously
+     *
+     * @param fileVariable             file Variable to save
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @param executor                 executor to run the operation
+     * @return a future on the reference
+     */
+    public CompletableFuture<FileVariableReference> saveFileVariableAsync(FileVariable fileVariable, OutboundConnectorContext outboundConnectorContext, Executor executor) {
+        return supplyAsync(() -> saveFileVariable(fileVariable, outboundConnectorContext), executor);
+    }
+
+    /**
+     * Purge the fileVariable asynchronously, on a virtual thread
+     *
+     * @param fileVariableReference    reference to the file to purge
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @return a future, true if the file is correctly purge
+     */
+    public CompletableFuture<Boolean> purgeFileVariableAsync(FileVariableReference fileVariableReference, OutboundConnectorContext outboundConnectorContext) {
+        return purgeFileVariableAsync(fileVariableReference, outboundConnectorContext, asyncExecutor);
+    }
+
+    /**
+     * Purge the fileVariable asynchronously
+     *
+     * @param fileVariableReference    reference to the file to purge
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @param executor                 executor to run the operation
+     * @return a future, true if the file is correctly purge
+     */
+    public CompletableFuture<Boolean> purgeFileVariableAsync(FileVariableReference fileVariableReference, OutboundConnectorContext outboundConnectorContext, Executor executor) {
+        return supplyAsync(() -> purgeFileVariable(fileVariableReference, outboundConnectorContext), executor);
+    }
+
+    /**
+     * Run an operation on the executor. An exception completes the future exceptionally
+     *
+     * @param operation operation to run
+     * @param executor  executor
+     * @return the future
+     */
+    private <T> CompletableFuture<T> supplyAsync(StorageOperation<T> operation, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return operation.execute();
+            } catch (CompletionException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @FunctionalInterface
+    private interface StorageOperation<T> {
+        T execute() throws Exception;
+    }
+
+    /* ******************************************************************** */
+    /*                                                                      */
+    /*  Batch API                                                           */
+    /*                                                                      */
+    /*  Items are grouped by storage definition: one storage is used per    */
+    /*  group, each item takes its connection from this storage. A group    */
+    /*  processes at most batchParallelism items at the same time. Each     */
+    /*  item has its result.                                                */
+    /* ******************************************************************** */
+
+    /**
+     * Number of items of the same storage processed in parallel by a batch operation
+     *
+     * @param batchParallelism parallelism, must be at least 1
+     */
+    public void setBatchParallelism(int batchParallelism) {
+        if (batchParallelism < 1)
+            throw new IllegalArgumentException("Batch parallelism must be at least 1");
+        this.batchParallelism = batchParallelism;
+    }
+
+    /**
+     * Load a list of fileVariables
+     *
+     * @param fileVariableReferences   references to load
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @return one result per reference, in the same order
+     */
+    public List<BatchResult<FileVariable>> loadFileVariables(List<FileVariableReference> fileVariableReferences, OutboundConnectorContext outboundConnectorContext) {
+        return loadFileVariables(fileVariableReferences, outboundConnectorContext, batchParallelism);
+    }
+
+    /**
+     * Load a list of fileVariables
+     *
+     * @param fileVariableReferences   references to load
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @param parallelism              number of items of the same storage loaded in parallel
+     * @return one result per reference, in the same order
+     */
+    public List<BatchResult<FileVariable>> loadFileVariables(List<FileVariableReference> fileVariableReferences, OutboundConnectorContext outboundConnectorContext, int parallelism) {
+        return executeBatch(fileVariableReferences, FileVariableReference::getStorageDefinitionObject,
+                this::loadFromStorage, null, outboundConnectorContext, parallelism);
+    }
+
+    /**
+     * Save a list of fileVariables
+     *
+     * @param fileVariables            fileVariables to save
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @return one result per fileVariable, in the same order
+     */
+    public List<BatchResult<FileVariableReference>> saveFileVariables(List<FileVariable> fileVariables, OutboundConnectorContext outboundConnectorContext) {
+        return saveFileVariables(fileVariables, outboundConnectorContext, batchParallelism);
+    }
+
+    /**
+     * Save a list of fileVariables
+     *
+     * @param fileVariables            fileVariables to save
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @param parallelism              number of items of the same storage saved in parallel
+     * @return one result per fileVariable, in the same order
+     */
+    public List<BatchResult<FileVariableReference>> saveFileVariables(List<FileVariable> fileVariables, OutboundConnectorContext outboundConnectorContext, int parallelism) {
+        return executeBatch(fileVariables, FileVariable::getStorageDefinition,
+                this::saveToStorage, null, outboundConnectorContext, parallelism);
+    }
+
+    /**
+     * Purge a list of fileVariables
+     *
+     * @param fileVariableReferences   references to purge
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @return one result per reference, in the same order
+     */
+    public List<BatchResult<Boolean>> purgeFileVariables(List<FileVariableReference> fileVariableReferences, OutboundConnectorContext outboundConnectorContext) {
+        return purgeFileVariables(fileVariableReferences, outboundConnectorContext, batchParallelism);
+    }
+
+    /**
+     * Purge a list of fileVariables. When the storage can purge a list in one exchange (Google Drive), the
+     * references of this storage are sent together, else they are purged one by one
+     *
+     * @param fileVariableReferences   references to purge
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @param parallelism              number of items of the same storage purged in parallel
+     * @return one result per reference, in the same order
+     */
+    public List<BatchResult<Boolean>> purgeFileVariables(List<FileVariableReference> fileVariableReferences, OutboundConnectorContext outboundConnectorContext, int parallelism) {
+        return executeBatch(fileVariableReferences, FileVariableReference::getStorageDefinitionObject,
+                this::purgeFromStorage, this::purgeGroupFromStorage, outboundConnectorContext, parallelism);
+    }
+
+    /**
+     * Execute a batch: group the items per storage, then run each group with the parallelism
+     *
+     * @param items                    items to process
+     * @param storageDefinitionOf      return the storage definition of an item
+     * @param operation                operation to run on each item
+     * @param groupOperation           operation to run on a complete group, may be null. If it returns null, the
+     *                                 operation is run on each item
+     * @param outboundConnectorContext context to access the Camunda storage
+     * @param parallelism              number of items of the same storage processed in parallel
+     * @return one result per item, in the same order
+     */
+    private <I, R> List<BatchResult<R>> executeBatch(List<I> items,
+                                                     BatchFunction<I, StorageDefinition> storageDefinitionOf,
+                                                     BatchOperation<I, R> operation,
+                                                     BatchOperation<List<I>, List<BatchResult<R>>> groupOperation,
+                                                     OutboundConnectorContext outboundConnectorContext,
+                                                     int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Batch parallelism must be at least 1");
+        List<BatchResult<R>> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+
+        // group the items per storage
+        Map<String, StorageDefinition> storageDefinitions = new HashMap<>();
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                StorageDefinition storageDefinition = items.get(i) == null ? null : storageDefinitionOf.apply(items.get(i));
+                if (storageDefinition == null)
+                    throw new Exception("No storage definition for item " + i);
+                String signature = getSignature(storageDefinition);
+                storageDefinitions.putIfAbsent(signature, storageDefinition);
+                groups.computeIfAbsent(signature, k -> new ArrayList<>()).add(i);
+            } catch (Exception e) {
+                results.set(i, BatchResult.failure(e));
+            }
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            Storage storage;
+            try {
+                storage = getStorage(storageDefinitions.get(group.getKey()), outboundConnectorContext);
+            } catch (Exception e) {
+                for (int index : group.getValue())
+                    results.set(index, BatchResult.failure(e));
+                continue;
+            }
+            if (groupOperation != null) {
+                List<Integer> indexes = group.getValue();
+                List<I> groupItems = indexes.stream().map(items::get).toList();
+                futures.add(CompletableFuture.runAsync(() -> {
+                    List<BatchResult<R>> groupResults;
+                    try {
+                        groupResults = groupOperation.apply(storage, groupItems);
+                    } catch (Exception e) {
+                        groupResults = Collections.nCopies(indexes.size(), BatchResult.failure(e));
+                    }
+                    if (groupResults != null && groupResults.size() != indexes.size()) {
+                        Exception e = new Exception("Storage [" + storage.getName() + "] returns " + groupResults.size()
+                                + " results for " + indexes.size() + " items");
+                        groupResults = Collections.nCopies(indexes.size(), BatchResult.failure(e));
+                    }
+                    if (groupResults != null) {
+                        for (int i = 0; i < indexes.size(); i++)
+                            results.set(indexes.get(i), groupResults.get(i));
+                    } else {
+                        runEachItem(items, indexes, storage, operation, parallelism, results);
+                    }
+                }, asyncExecutor));
+                continue;
+            }
+            futures.addAll(submitEachItem(items, group.getValue(), storage, operation, parallelism, results));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return results;
+    }
+
+    /**
+     * Run the operation on each item of a group, and wait for the end
+     */
+    private <I, R> void runEachItem(List<I> items, List<Integer> indexes, Storage storage, BatchOperation<I, R> operation,
+                                    int parallelism, List<BatchResult<R>> results) {
+        CompletableFuture.allOf(submitEachItem(items, indexes, storage, operation, parallelism, results)
+                .toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Submit the operation on each item of a group. At most parallelism items are processed at the same time
+     */
+    private <I, R> List<CompletableFuture<Void>> submitEachItem(List<I> items, List<Integer> indexes, Storage storage,
+                                                                 BatchOperation<I, R> operation, int parallelism,
+                                                                 List<BatchResult<R>> results) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Semaphore groupPermits = new Semaphore(parallelism);
+        for (int index : indexes) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    groupPermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.set(index, BatchResult.failure(e));
+                    return;
+                }
+                try {
+                    results.set(index, BatchResult.success(operation.apply(storage, items.get(index))));
+                } catch (Exception e) {
+                    results.set(index, BatchResult.failure(e));
+                } finally {
+                    groupPermits.release();
+                }
+            }, asyncExecutor));
+        }
+        return futures;
+    }
+
+    @FunctionalInterface
+    private interface BatchFunction<I, R> {
+        R apply(I item) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface BatchOperation<I, R> {
+        R apply(Storage storage, I item) throws Exception;
     }
 
     /**
@@ -121,8 +544,146 @@ public class FileRepoFactory {
      * @return a uniq ID
      */
     public String generateUniqId() {
-        // get an uniq identifier
-        return "_" + System.currentTimeMillis() + "_" + rand.nextInt(10000);
+        return uniqIdGenerator.generateUniqId();
+    }
+
+    /**
+     * Replace the generator of uniq identifiers. By default, a NodeUniqIdGenerator is used
+     *
+     * @param uniqIdGenerator the generator
+     */
+    public void setUniqIdGenerator(UniqIdGenerator uniqIdGenerator) {
+        this.uniqIdGenerator = uniqIdGenerator;
+    }
+
+    public UniqIdGenerator getUniqIdGenerator() {
+        return uniqIdGenerator;
+    }
+
+    /**
+     * Replace the instrumentation. By default, a StorageMetricsRegistry records the metrics in memory.
+     * Use StorageMetrics.NONE to record nothing, or a MicrometerStorageMetrics to publish them
+     *
+     * @param storageMetrics the instrumentation
+     */
+    public void setStorageMetrics(StorageMetrics storageMetrics) {
+        this.storageMetrics = storageMetrics == null ? StorageMetrics.NONE : storageMetrics;
+    }
+
+    public StorageMetrics getStorageMetrics() {
+        return storageMetrics;
+    }
+
+    /**
+     * Load the file. A cache hit is recorded as CACHE_HIT, else as LOAD. Storages read the content lazily: the
+     * transfer of the content is recorded as READ, with the bytes actually read
+     */
+    private FileVariable loadFromStorage(Storage storage, FileVariableReference fileVariableReference) throws Exception {
+        StorageMetrics metrics = storageMetrics;
+        StorageCached storageCached = storage instanceof StorageCached cached ? cached : null;
+        if (storageCached != null) {
+            long start = System.nanoTime();
+            FileVariable fileVariable = storageCached.fromCache(fileVariableReference);
+            if (fileVariable != null) {
+                // a miss is recorded as a LOAD: the hit is known at the end only
+                metrics.onStart(storage.getType(), StorageMetrics.Operation.CACHE_HIT);
+                metrics.onEnd(storage.getType(), StorageMetrics.Operation.CACHE_HIT, System.nanoTime() - start, getLength(fileVariable), true);
+                fileVariable.setOriginalName(fileVariableReference.originalFileName);
+                return fileVariable;
+            }
+        }
+        metrics.onStart(storage.getType(), StorageMetrics.Operation.LOAD);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            FileVariable fileVariable = storageCached != null ? storageCached.fromStorageToCache(fileVariableReference) : storage.fromStorage(fileVariableReference);
+            fileVariable.setOriginalName(fileVariableReference.originalFileName);
+            if (fileVariable.getContent() != null)
+                fileVariable.setContent(new MeteredContent(fileVariable.getContent(), metrics, storage.getType()));
+            success = true;
+            return fileVariable;
+        } finally {
+            metrics.onEnd(storage.getType(), StorageMetrics.Operation.LOAD, System.nanoTime() - start, 0, success);
+        }
+    }
+
+    private FileVariableReference saveToStorage(Storage storage, FileVariable fileVariable) throws Exception {
+        StorageMetrics metrics = storageMetrics;
+        metrics.onStart(storage.getType(), StorageMetrics.Operation.SAVE);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            FileVariableReference fileVariableReference = storage.toStorage(fileVariable, null);
+            success = true;
+            return completeReference(fileVariableReference, fileVariable);
+        } finally {
+            metrics.onEnd(storage.getType(), StorageMetrics.Operation.SAVE, System.nanoTime() - start, getLength(fileVariable), success);
+        }
+    }
+
+    private boolean purgeFromStorage(Storage storage, FileVariableReference fileVariableReference) throws Exception {
+        StorageMetrics metrics = storageMetrics;
+        metrics.onStart(storage.getType(), StorageMetrics.Operation.PURGE);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            // false means nothing to purge: this is not an error
+            boolean purged = storage.purgeStorage(fileVariableReference);
+            success = true;
+            return purged;
+        } finally {
+            metrics.onEnd(storage.getType(), StorageMetrics.Operation.PURGE, System.nanoTime() - start, 0, success);
+        }
+    }
+
+    /**
+     * Purge a group in one operation. The group is recorded when it is done, with one sample per item: the items are
+     * not counted in flight, because the storage may not support it
+     */
+    private List<BatchResult<Boolean>> purgeGroupFromStorage(Storage storage, List<FileVariableReference> fileVariableReferences) throws Exception {
+        StorageMetrics metrics = storageMetrics;
+        long start = System.nanoTime();
+        List<BatchResult<Boolean>> results;
+        try {
+            results = storage.purgeStorage(fileVariableReferences);
+        } catch (Exception e) {
+            recordGroup(metrics, storage, System.nanoTime() - start, fileVariableReferences.size(), null);
+            throw e;
+        }
+        // null: the storage does not support it, each item is purged and recorded
+        if (results != null)
+            recordGroup(metrics, storage, System.nanoTime() - start, results.size(), results);
+        return results;
+    }
+
+    private void recordGroup(StorageMetrics metrics, Storage storage, long durationNanos, int size, List<BatchResult<Boolean>> results) {
+        for (int i = 0; i < size; i++) {
+            boolean success = results != null && results.get(i).isSuccess();
+            metrics.onStart(storage.getType(), StorageMetrics.Operation.PURGE);
+            metrics.onEnd(storage.getType(), StorageMetrics.Operation.PURGE, durationNanos, 0, success);
+        }
+    }
+
+    /**
+     * @return the length of the content, 0 if it is not known
+     */
+    private static long getLength(FileVariable fileVariable) {
+        FileContent content = fileVariable.getContent();
+        return content == null ? 0 : Math.max(0, content.getLength());
+    }
+
+    /**
+     * Complete the reference returned by the storage
+     *
+     * @param fileVariableReference reference returned by the storage
+     * @param fileVariable          file saved
+     * @return the reference
+     */
+    private FileVariableReference completeReference(FileVariableReference fileVariableReference, FileVariable fileVariable) {
+        // override the storageDefinition to be sure
+        fileVariableReference.storageDefinition = fileVariable.getStorageDefinition().encodeToString();
+        fileVariableReference.originalFileName = fileVariable.getOriginalName();
+        return fileVariableReference;
     }
 
     public String getLoggerHeaderMessage(Class<?> clazz) {
@@ -131,7 +692,46 @@ public class FileRepoFactory {
     }
 
     /**
-     * Get the storage. Note: a new object is created for each request, the content may change. Not recommended to save it, just ask again the factory
+     * Storages not used during this delay are removed from the registry, and closed
+     *
+     * @param storageIdleTimeout delay
+     */
+    public void setStorageIdleTimeout(Duration storageIdleTimeout) {
+        this.storageIdleTimeoutMs = storageIdleTimeout.toMillis();
+    }
+
+    /**
+     * Remove all storages from the registry, and close them
+     */
+    public void clearStorages() {
+        for (String signature : allStorages.keySet()) {
+            StorageEntry storageEntry = allStorages.remove(signature);
+            if (storageEntry != null)
+                storageEntry.storage.close();
+        }
+    }
+
+    /**
+     * Return the read cache, to configure it. Only storages with the readCache option use it
+     *
+     * @return the read cache
+     */
+    public StorageCache getStorageCache() {
+        return storageCache;
+    }
+
+    /**
+     * Return the janitor of the TEMPFOLDER storage, to configure and start it
+     *
+     * @return the janitor
+     */
+    public StorageTempFolderJanitor getTempFolderJanitor() {
+        return tempFolderJanitor;
+    }
+
+    /**
+     * Get the storage. Storages are kept in a registry: a storage is initialized once per storage definition.
+     * The Camunda storage is created for each request, because it depends on the connector context.
      *
      * @param storageDefinition        definition
      * @param outboundConnectorContext context used to access the Camunda storage
@@ -139,14 +739,86 @@ public class FileRepoFactory {
      * @throws Exception in case of any error
      */
     private Storage getStorage(StorageDefinition storageDefinition, OutboundConnectorContext outboundConnectorContext) throws Exception {
-        return switch (storageDefinition.type) {
+        if (storageDefinition.type == StorageDefinition.StorageDefinitionType.CAMUNDA) {
+            Storage storageCamunda = new StorageCamunda(outboundConnectorContext, storageDefinition, this);
+            return storageDefinition.readCache ? new StorageCached(storageCamunda, storageCache, this) : storageCamunda;
+        }
+
+        evictIdleStorages();
+        // the access is stamped inside the compute: the eviction, which runs on the same key, can't close the
+        // storage returned
+        StorageEntry storageEntry = allStorages.compute(getSignature(storageDefinition), (signature, entry) -> {
+            StorageEntry storageEntryAccessed = entry == null ? new StorageEntry(createStorage(storageDefinition)) : entry;
+            storageEntryAccessed.lastAccess = System.currentTimeMillis();
+            return storageEntryAccessed;
+        });
+        return storageEntry.storage;
+    }
+
+    private Storage createStorage(StorageDefinition storageDefinition) {
+        Storage storage = switch (storageDefinition.type) {
             case JSON -> new StorageJSON(storageDefinition, this);
             case FOLDER -> new StorageFolder(storageDefinition, this);
             case CMIS -> new StorageCMIS(storageDefinition, this);
             case TEMPFOLDER -> new StorageTempFolder(storageDefinition, this);
             case URL -> new StorageURL(storageDefinition, this);
-            case CAMUNDA -> new StorageCamunda(outboundConnectorContext, storageDefinition, this);
             case GOOGLEDRIVE -> new StorageGoogleDrive(storageDefinition, this);
+            case CAMUNDA -> throw new IllegalArgumentException("Camunda storage depends on the context");
         };
+        return storageDefinition.readCache ? new StorageCached(storage, storageCache, this) : storage;
+    }
+
+    /**
+     * Calculate a uniq signature for a storage definition. The fileStorageComplement (credentials) is not part of
+     * the encoded string, so its hash is added: the credentials are not kept in the registry
+     *
+     * @param storageDefinition definition
+     * @return a signature
+     */
+    private String getSignature(StorageDefinition storageDefinition) {
+        String signature = storageDefinition.encodeToString();
+        if (storageDefinition.fileStorageComplement != null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                signature += "#" + HexFormat.of().formatHex(digest.digest(String.valueOf(storageDefinition.fileStorageComplement).getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is mandatory in all JVM
+                throw new IllegalStateException(e);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Remove the storages not used since the idle timeout. The check runs at most twice per idle timeout
+     */
+    private void evictIdleStorages() {
+        long now = System.currentTimeMillis();
+        if (now - lastEvictionCheck < storageIdleTimeoutMs / 2)
+            return;
+        lastEvictionCheck = now;
+        for (String signature : allStorages.keySet()) {
+            // the check runs inside the compute: a storage accessed at the same time is kept
+            List<StorageEntry> storageEntriesIdle = new ArrayList<>(1);
+            allStorages.computeIfPresent(signature, (key, entry) -> {
+                if (now - entry.lastAccess < storageIdleTimeoutMs)
+                    return entry;
+                storageEntriesIdle.add(entry);
+                return null;
+            });
+            for (StorageEntry storageEntry : storageEntriesIdle) {
+                logger.debug("FileRepoFactory: close idle storage [{}]", storageEntry.storage.getName());
+                storageEntry.storage.close();
+            }
+        }
+    }
+
+    private static class StorageEntry {
+        private final Storage storage;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        StorageEntry(Storage storage) {
+            this.storage = storage;
+        }
     }
 }
@@ -2,16 +2,18 @@
 /*                                                                      */
 /*  FileVariable                                                        */
 /*                                                                      */
-/*  File variable contains the file. Attention, file is in memory then  */
+/*  File variable contains the file. The content is a FileContent: it   */
+/*  is in memory only if the storage or the caller provides a byte[]    */
 /* ******************************************************************** */
 package io.camunda.filestorage;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.camunda.filestorage.storage.StorageDefinition;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -20,8 +22,7 @@ public class FileVariable {
     private String name;
     private String originalName = null;
     private String mimeType;
-    private byte[] valueBytes;
-    private InputStream valueStream;
+    private FileContent content;
     /**
      * Keep the information from where this fileVariable come from.
      * So, if the worker wants to save it at the same place, it has the information.
@@ -119,46 +120,77 @@ public class FileVariable {
     /*                                                                      */
     /*  Value                                                               */
     /*                                                                      */
-    /*  Value can be managed as byte[] or InputStream                       */
+    /*  Value can be managed as byte[], InputStream or FileContent          */
     /* ******************************************************************** */
 
     /**
-     * Value can
+     * Return the content in byte. If the content is a one-shot stream, it is read and kept in memory, so the
+     * next call returns the same value.
      *
      * @return content in byte
      * @throws IOException in case of error, when the value is store in Stream
      */
     public byte[] getValue() throws IOException {
-        if (valueBytes != null)
-            return valueBytes;
-        if (valueStream != null) {
-            return valueStream.readAllBytes();
-        }
-        return null;
+        if (content == null)
+            return null;
+        byte[] valueBytes = content.readAllBytes();
+        if (!content.isRepeatable())
+            content = FileContent.fromBytes(valueBytes);
+        return valueBytes;
     }
 
     public void setValue(byte[] valueBytes) {
-        this.valueBytes = valueBytes;
+        this.content = valueBytes == null ? null : FileContent.fromBytes(valueBytes);
     }
 
+    /**
+     * Open a stream on the content. For a repeatable content, each call returns a new stream.
+     *
+     * @return a stream, null if there is no content
+     */
+    @JsonIgnore
     public InputStream getValueStream() {
-        if (valueStream != null)
-            return valueStream;
-        if (valueBytes != null)
-            return new ByteArrayInputStream(valueBytes);
-        return null;
+        if (content == null)
+            return null;
+        try {
+            return content.openStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
+    public void setValueStream(InputStream inputStream) {
+        this.content = inputStream == null ? null : FileContent.fromStream(inputStream, FileContent.UNKNOWN_LENGTH);
+    }
+
+    @JsonIgnore
     public boolean isValueBytes() {
-        return valueBytes != null;
+        return content != null && content.isInMemory();
     }
 
+    @JsonIgnore
     public boolean isValueStream() {
-        return valueStream != null;
+        return content != null && !content.isInMemory();
     }
 
-    public void setValueStream(InputStream inputStream) {
-        this.valueStream = inputStream;
+    @JsonIgnore
+    public FileContent getContent() {
+        return content;
+    }
+
+    @JsonIgnore
+    public void setContent(FileContent content) {
+        this.content = content;
+    }
+
+    /**
+     * Length of the content, if the storage knows it
+     *
+     * @return the length in bytes, or FileContent.UNKNOWN_LENGTH
+     */
+    @JsonIgnore
+    public long getContentLength() {
+        return content == null ? FileContent.UNKNOWN_LENGTH : content.getLength();
     }
 
 }
@@ -10,6 +10,7 @@
 package io.camunda.filestorage;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,6 +40,12 @@ public class FileVariableReference {
      * content to retrieve the file in the storageDefinition (key to access it)
      */
     public Object content;
+    /**
+     * Identifier of the file in the storage, when the storage has one (the object ID in CMIS).
+     * Optional: the file is found via the content when it is missing
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String storageObjectId;
     public DocumentReference camundaReference = null;
     /**
      * original Filename is one was provided
@@ -0,0 +1,93 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  NodeUniqIdGenerator                                                 */
+/*                                                                      */
+/*  Default generator: _<timestamp>_<node>_<thread>_<counter>           */
+/*  - the node identifies the JVM: workers writing in the same shared   */
+/*    folder never generate the same ID                                 */
+/*  - the timestamp is monotonic: it never goes back with the clock     */
+/*  - the thread and its counter make the ID uniq in the JVM, without   */
+/*    any shared state: no lock, no contention between threads          */
+/* ******************************************************************** */
+package io.camunda.filestorage;
+
+import java.security.SecureRandom;
+
+public class NodeUniqIdGenerator implements UniqIdGenerator {
+
+    /**
+     * System property to give the node identifier, for example the name of the pod
+     */
+    public static final String NODE_ID_PROPERTY = "filestorage.nodeId";
+
+    /**
+     * The timestamp is the wall clock at the start, plus the monotonic time since the start.
+     * The clock and the thread state are shared by all the generators of the JVM: two generators with the same node
+     * never give the same ID
+     */
+    private static final long START_TIME_MS = System.currentTimeMillis();
+    private static final long START_NANOS = System.nanoTime();
+
+    /**
+     * Per thread: last timestamp, and counter in this timestamp
+     */
+    private static final ThreadLocal<long[]> THREAD_STATE = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final String nodeId;
+
+    /**
+     * The node identifier comes from the system property, else it is random
+     */
+    public NodeUniqIdGenerator() {
+        this(System.getProperty(NODE_ID_PROPERTY));
+    }
+
+    /**
+     * @param nodeId identifier of this JVM. Must be uniq between the workers sharing a storage. If null, a random
+     *               identifier is used
+     */
+    public NodeUniqIdGenerator(String nodeId) {
+        this.nodeId = nodeId == null || nodeId.isEmpty() ? generateRandomNodeId() : sanitize(nodeId);
+    }
+
+    @Override
+    public String generateUniqId() {
+        long timestamp = START_TIME_MS + (System.nanoTime() - START_NANOS) / 1_000_000;
+        long[] state = THREAD_STATE.get();
+        if (timestamp != state[0]) {
+            state[0] = timestamp;
+            state[1] = 0;
+        } else {
+            state[1]++;
+        }
+        StringBuilder uniqId = new StringBuilder(48);
+        uniqId.append('_').append(timestamp)
+                .append('_').append(nodeId)
+                .append('_').append(Long.toString(Thread.currentThread().threadId(), Character.MAX_RADIX))
+                .append('_').append(Long.toString(state[1], Character.MAX_RADIX));
+        return uniqId.toString();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 40 random bits: the probability that two JVMs get the same node is negligible
+     */
+    private static String generateRandomNodeId() {
+        long random = new SecureRandom().nextLong() & 0xFF_FFFF_FFFFL;
+        return Long.toString(random, Character.MAX_RADIX);
+    }
+
+    /**
+     * The ID is part of a file name: keep only the safe characters
+     */
+    private static String sanitize(String nodeId) {
+        StringBuilder result = new StringBuilder(nodeId.length());
+        for (char c : nodeId.toCharArray()) {
+            result.append(Character.isLetterOrDigit(c) || c == '-' ? c : '-');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,19 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  UniqIdGenerator                                                     */
+/*                                                                      */
+/*  Generate the uniq identifiers added to the file names by the        */
+/*  storages. The generator is set in the FileRepoFactory               */
+/* ******************************************************************** */
+package io.camunda.filestorage;
+
+@FunctionalInterface
+public interface UniqIdGenerator {
+
+    /**
+     * Generate a new identifier. The method is called concurrently: it must be thread safe, and should not lock
+     *
+     * @return an identifier, never returned before
+     */
+    String generateUniqId();
+}
@@ -12,6 +12,7 @@ import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
@@ -22,13 +23,30 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class CmisConnection {
+    /**
+     * Properties read when the library accesses a document: nothing more is asked to the repository
+     */
+    private static final String MINIMAL_FILTER = PropertyIds.OBJECT_ID + "," + PropertyIds.OBJECT_TYPE_ID + "," + PropertyIds.BASE_TYPE_ID + ","
+            + PropertyIds.NAME + "," + PropertyIds.CONTENT_STREAM_MIME_TYPE + "," + PropertyIds.CONTENT_STREAM_LENGTH;
+
     private final CmisParameters cmisParameters;
+    private final CmisObjectIdCache objectIdCache;
     protected Session session;
     private Repository repository;
+    private OperationContext minimalContext;
 
 
     public CmisConnection(CmisParameters cmisParameters) {
+        this(cmisParameters, new CmisObjectIdCache(CmisObjectIdCache.DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * @param cmisParameters parameters to access the repository
+     * @param objectIdCache  cache path to object ID, shared by the connections to the same repository
+     */
+    public CmisConnection(CmisParameters cmisParameters, CmisObjectIdCache objectIdCache) {
         this.cmisParameters = cmisParameters;
+        this.objectIdCache = objectIdCache;
     }
 
     /**
@@ -62,7 +80,34 @@ public class CmisConnection {
         final SessionFactory sessionFactory = SessionFactoryImpl.newInstance();
 
         session = sessionFactory.createSession(parameter);
-        return session != null;
+        if (session == null)
+            return false;
+        minimalContext = session.createOperationContext();
+        minimalContext.setFilterString(MINIMAL_FILTER);
+        minimalContext.setIncludeAcls(false);
+        minimalContext.setIncludeAllowableActions(false);
+        minimalContext.setIncludePolicies(false);
+        minimalContext.setIncludeRelationships(IncludeRelationships.NONE);
+        minimalContext.setRenditionFilterString("cmis:none");
+        minimalContext.setIncludePathSegments(false);
+        minimalContext.setCacheEnabled(false);
+        return true;
+    }
+
+    /**
+     * Check that the session still reaches the repository (one round trip)
+     *
+     * @return true if the session is usable
+     */
+    public boolean isValid() {
+        if (session == null)
+            return false;
+        try {
+            session.getBinding().getRepositoryService().getRepositoryInfo(session.getRepositoryInfo().getId(), null);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
     }
 
     /**
@@ -83,7 +128,7 @@ public class CmisConnection {
      * @return the folder object
      */
     public Folder getFolderByPath(final String path) {
-        CmisObject cmisObject = session.getObjectByPath(path);
+        CmisObject cmisObject = session.getObjectByPath(path, minimalContext);
         if (cmisObject instanceof Folder cmisFolder)
             return cmisFolder;
         return null;
@@ -152,6 +197,45 @@ public class CmisConnection {
         }
     }
 
+    /**
+     * Create a new document. The caller knows that the document does not exist (uniq name): there is no check,
+     * and the folder is accessed one time.
+     *
+     * @param documentProperties Properties to saved the document
+     * @param inputDocument      Content of the document. The stream is read while it is sent to the repository
+     * @param length             length of the content, -1 if the length is not known
+     * @param mimeType           Mime type of the document
+     * @return the object ID of the document. The document is not read back: no extra round trip
+     * @throws Exception if the folder does not exist, or the creation failed
+     */
+    public String createDocument(DocumentProperties documentProperties, InputStream inputDocument, long length, final String mimeType) throws Exception {
+        final ContentStream contentStream = new ContentStreamImpl(documentProperties.documentName, length < 0 ? null : BigInteger.valueOf(length), mimeType, inputDocument);
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PropertyIds.OBJECT_TYPE_ID, documentProperties.objectType);
+        properties.put(PropertyIds.NAME, documentProperties.documentName);
+        VersioningState version = determineVersionStrategy(documentProperties);
+
+        String folderId = objectIdCache.get(documentProperties.parentFolder);
+        if (folderId == null) {
+            final Folder folder = getFolderByPath(documentProperties.parentFolder);
+            if (folder == null) {
+                throw new IllegalArgumentException("No folder [" + documentProperties.parentFolder + "] exists in [" + cmisParameters.repositoryName + "]");
+            }
+            folderId = folder.getId();
+            objectIdCache.put(documentProperties.parentFolder, folderId);
+        }
+        ObjectId documentId;
+        try {
+            documentId = session.createDocument(properties, session.createObjectId(folderId), contentStream, version);
+        } catch (CmisObjectNotFoundException e) {
+            // the folder ID is not valid anymore: the next call resolves the folder by its path
+            objectIdCache.evict(documentProperties.parentFolder);
+            throw e;
+        }
+        objectIdCache.put(documentProperties.parentFolder + "/" + documentProperties.documentName, documentId.getId());
+        return documentId.getId();
+    }
+
     /**
      * Object may accept, or not, a version policy. According to the request in the documentProperties, return the best policy, else throw an exception
      *
@@ -183,12 +267,36 @@ public class CmisConnection {
      * @param documentName name of the document
      */
     public boolean deleteDocumentByPath(final String parentFolder, final String documentName) {
-        Document existingDocument = (Document) session.getObjectByPath(parentFolder + "/" + documentName);
-        if (existingDocument != null) {
-            existingDocument.delete();
-            return true;
+        String path = parentFolder + "/" + documentName;
+        String documentId = getObjectIdByPath(path);
+        try {
+            session.delete(session.createObjectId(documentId));
+        } finally {
+            objectIdCache.evict(path);
         }
-        return false;
+        return true;
+    }
+
+    /**
+     * Delete a document by its ID: one round trip. The ID saved in the reference may not exist anymore (the document
+     * was replaced by a new version): the document is then deleted by its path
+     *
+     * @param documentId   id of the document
+     * @param parentFolder folder where the document is, to remove its path from the cache
+     * @param documentName name of the document
+     * @return true if the document is deleted
+     */
+    public boolean deleteDocumentById(final String documentId, final String parentFolder, final String documentName) {
+        try {
+            session.delete(session.createObjectId(documentId));
+        } catch (CmisObjectNotFoundException e) {
+            // the cache may hold the same ID
+            objectIdCache.evict(parentFolder + "/" + documentName);
+            return deleteDocumentByPath(parentFolder, documentName);
+        } finally {
+            objectIdCache.evict(parentFolder + "/" + documentName);
+        }
+        return true;
     }
 
     /**
@@ -211,11 +319,73 @@ public class CmisConnection {
      * @return the content of the document. Caller is responsible to close the InputStream
      */
     public ContentStream getDocumentByPath(String parentFolder, final String documentName) {
-        Document existingDocument = (Document) session.getObjectByPath(parentFolder + "/" + documentName);
-        return existingDocument.getContentStream();
+        return getDocument(parentFolder, documentName).getContentStream();
+    }
+
+
+
+    /**
+     * Return a document in a folder
+     *
+     * @param parentFolder folder where the document is
+     * @param documentName name of the document
+     * @return the document
+     */
+    public Document getDocument(String parentFolder, final String documentName) {
+        String path = parentFolder + "/" + documentName;
+        String documentId = objectIdCache.get(path);
+        if (documentId != null) {
+            try {
+                return getDocumentById(documentId);
+            } catch (CmisObjectNotFoundException e) {
+                // the document was replaced: resolve the path again
+                objectIdCache.evict(path);
+            }
+        }
+        Document document = (Document) session.getObjectByPath(path, minimalContext);
+        objectIdCache.put(path, document.getId());
+        return document;
     }
 
+    /**
+     * Return a document by its ID. Only the properties needed by the library are read
+     *
+     * @param documentId id of the document
+     * @return the document
+     */
+    public Document getDocumentById(final String documentId) {
+        return (Document) session.getObject(documentId, minimalContext);
+    }
 
+    /**
+     * Return the ID of an object, from the cache or from the repository
+     *
+     * @param path path to the object
+     * @return the object ID
+     */
+    public String getObjectIdByPath(final String path) {
+        String objectId = objectIdCache.get(path);
+        if (objectId == null) {
+            objectId = session.getObjectByPath(path, minimalContext).getId();
+            objectIdCache.put(path, objectId);
+        }
+        return objectId;
+    }
+
+    /**
+     * Return a range of the content of a document. The content is not read: caller is responsible to close the
+     * InputStream, which releases the HTTP connection
+     *
+     * @param documentId id of the document
+     * @param offset     first byte to read
+     * @param length     number of bytes to read, -1 to read until the end
+     * @return the content stream
+     */
+    public ContentStream getContentStream(String documentId, long offset, long length) {
+        return session.getContentStream(session.createObjectId(documentId), null,
+                offset <= 0 ? null : BigInteger.valueOf(offset),
+                length < 0 ? null : BigInteger.valueOf(length));
+    }
 
     /**
      * Access the CMIS session for any advance usage
@@ -0,0 +1,198 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  CmisConnectionPool                                                  */
+/*                                                                      */
+/*  Bounded pool of connections to one CMIS repository.                 */
+/*  A connection is acquired for an operation, then released.           */
+/*  Idle connections are evicted, and validated before reuse after a    */
+/*  while. A broken connection is replaced, and the operation retried.  */
+/* ******************************************************************** */
+package io.camunda.filestorage.cmis;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class CmisConnectionPool {
+    Logger logger = LoggerFactory.getLogger(CmisConnectionPool.class.getName());
+
+    private final CmisParameters cmisParameters;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+
+    /**
+     * A permit per connection in use: the pool never opens more than maxSize connections
+     */
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<IdleConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    /**
+     * Path to object ID, shared by all connections of the pool
+     */
+    private final CmisObjectIdCache objectIdCache = new CmisObjectIdCache(CmisObjectIdCache.DEFAULT_MAX_ENTRIES);
+
+    public CmisConnectionPool(CmisParameters cmisParameters, int maxSize, long acquireTimeoutMs, long idleTimeoutMs, long validationIntervalMs) {
+        this.cmisParameters = cmisParameters;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Execute a read-only operation with a connection of the pool. If the connection is broken, it is replaced by a
+     * new one, and the operation is executed again, one time.
+     *
+     * @param operation operation to execute. It must be read-only: it may be executed two times
+     * @return the result of the operation
+     * @throws Exception if the operation failed
+     */
+    public <T> T execute(CmisOperation<T> operation) throws Exception {
+        return execute(operation, true);
+    }
+
+    /**
+     * Execute an operation with a connection of the pool. A broken connection is replaced by a new one.
+     * An operation which modifies the repository (create, delete) must not be retried: the first execution may be
+     * done on the repository even if the connection broke before the answer, and its content stream may be consumed.
+     *
+     * @param operation operation to execute
+     * @param retry     true to execute the operation again, one time, with a new connection if the connection broke
+     * @return the result of the operation
+     * @throws Exception if the operation failed
+     */
+    public <T> T execute(CmisOperation<T> operation, boolean retry) throws Exception {
+        CmisConnection cmisConnection = acquire();
+        try {
+            T result = operation.execute(cmisConnection);
+            release(cmisConnection);
+            return result;
+        } catch (CmisConnectionException e) {
+            logger.info("CmisConnectionPool: connection to [{}] broken, reconnect: {}", cmisParameters.url, e.getMessage());
+            invalidate(cmisConnection);
+            if (!retry)
+                throw e;
+        } catch (Exception e) {
+            release(cmisConnection);
+            throw e;
+        }
+        // second tentative with a new connection
+        cmisConnection = acquire();
+        try {
+            T result = operation.execute(cmisConnection);
+            release(cmisConnection);
+            return result;
+        } catch (CmisConnectionException e) {
+            invalidate(cmisConnection);
+            throw e;
+        } catch (Exception e) {
+            release(cmisConnection);
+            throw e;
+        }
+    }
+
+    /**
+     * Acquire a connection. The caller must give it back with release(), or invalidate() if it is broken
+     *
+     * @return a connection
+     * @throws Exception if no connection is available in time, or the connection failed
+     */
+    public CmisConnection acquire() throws Exception {
+        if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS))
+            throw new Exception("No CMIS connection available to [" + cmisParameters.url + "] after " + acquireTimeoutMs + " ms (pool size " + maxSize + ")");
+        try {
+            IdleConnection idleConnection;
+            while ((idleConnection = idleConnections.pollFirst()) != null) {
+                long idleTime = System.currentTimeMillis() - idleConnection.releasedAt;
+                if (idleTime < validationIntervalMs)
+                    return idleConnection.cmisConnection;
+                if (idleTime < idleTimeoutMs && idleConnection.cmisConnection.isValid())
+                    return idleConnection.cmisConnection;
+                idleConnection.cmisConnection.disconnect();
+            }
+            CmisConnection cmisConnection = new CmisConnection(cmisParameters, objectIdCache);
+            if (!cmisConnection.connect())
+                throw new Exception("Can't connect the the CMIS repository [" + cmisParameters.url + "]");
+            return cmisConnection;
+        } catch (Exception e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Give back a connection to the pool
+     *
+     * @param cmisConnection connection acquired
+     */
+    public void release(CmisConnection cmisConnection) {
+        // most recent first: the oldest ones are evicted
+        idleConnections.addFirst(new IdleConnection(cmisConnection, System.currentTimeMillis()));
+        permits.release();
+    }
+
+    /**
+     * The connection is broken: disconnect it, and does not give it back to the pool
+     *
+     * @param cmisConnection connection acquired
+     */
+    public void invalidate(CmisConnection cmisConnection) {
+        try {
+            cmisConnection.disconnect();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Disconnect connections idle for more than the idle timeout
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<IdleConnection> iterator = idleConnections.descendingIterator();
+        while (iterator.hasNext()) {
+            IdleConnection idleConnection = iterator.next();
+            if (now - idleConnection.releasedAt < idleTimeoutMs)
+                break;
+            if (idleConnections.removeLastOccurrence(idleConnection))
+                idleConnection.cmisConnection.disconnect();
+        }
+    }
+
+    /**
+     * Disconnect all idle connections
+     */
+    public void close() {
+        IdleConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            idleConnection.cmisConnection.disconnect();
+        }
+    }
+
+    public CmisObjectIdCache getObjectIdCache() {
+        return objectIdCache;
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    @FunctionalInterface
+    public interface CmisOperation<T> {
+        T execute(CmisConnection cmisConnection) throws Exception;
+    }
+
+    private record IdleConnection(CmisConnection cmisConnection, long releasedAt) {
+    }
+}
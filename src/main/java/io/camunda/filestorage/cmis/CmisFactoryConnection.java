@@ -3,38 +3,139 @@
 /*  CmisFactoryConnection                                               */
 /*                                                                      */
 /*  Manage all connection for CMIS                                      */
+/*  One pool of connections per repository (signature)                  */
 /* ******************************************************************** */
 package io.camunda.filestorage.cmis;
 
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CmisFactoryConnection {
 
+    public static final int DEFAULT_POOL_MAX_SIZE = 8;
+    public static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_VALIDATION_INTERVAL = Duration.ofSeconds(30);
+
     private static final CmisFactoryConnection singletonCmisFactory = new CmisFactoryConnection();
-    public Map<String, CmisConnection> allConnections = new HashMap<>();
+    /**
+     * Connections returned by getCmisConnection(), kept for compatibility
+     */
+    public Map<String, CmisConnection> allConnections = new ConcurrentHashMap<>();
+    private final Map<String, CmisConnectionPool> allPools = new ConcurrentHashMap<>();
+
+    private volatile int poolMaxSize = DEFAULT_POOL_MAX_SIZE;
+    private volatile Duration acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT;
+    private volatile Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private volatile Duration validationInterval = DEFAULT_VALIDATION_INTERVAL;
+    private volatile long lastEvictionCheck = System.currentTimeMillis();
 
     public static CmisFactoryConnection getInstance() {
         return singletonCmisFactory;
     }
 
+    /**
+     * Return a connection shared by all callers. This connection is not pooled, and is not reconnected if it breaks.
+     *
+     * @param cmisParameters Parameter to access the repository
+     * @return the connection
+     * @deprecated use execute(), which uses a pool of connections and reconnects a broken connection
+     */
+    @Deprecated
     public CmisConnection getCmisConnection(CmisParameters cmisParameters) {
-        String signature = getSignature(cmisParameters);
-        if (allConnections.containsKey(signature)) {
-            return allConnections.get(signature);
-        }
-        synchronized (allConnections) {
-            // check again: two threads maybe waiting in the synchronized
-            if (allConnections.containsKey(signature))
-                return allConnections.get(signature);
+        return allConnections.computeIfAbsent(getSignature(cmisParameters), signature -> {
             CmisConnection cmisConnection = new CmisConnection(cmisParameters);
             cmisConnection.connect();
-            allConnections.put(signature, cmisConnection);
             return cmisConnection;
-        }
+        });
+    }
+
+    /**
+     * Execute a read-only operation with a connection from the pool of the repository. If the connection
+     * breaks, the operation is executed again with a new connection
+     *
+     * @param cmisParameters Parameter to access the repository
+     * @param operation      operation to execute
+     * @return the result of the operation
+     * @throws Exception if the operation failed
+     */
+    public <T> T execute(CmisParameters cmisParameters, CmisConnectionPool.CmisOperation<T> operation) throws Exception {
+        return getPool(cmisParameters).execute(operation);
+    }
+
+    /**
+     * Execute an operation which modifies the repository with a connection from the pool of the repository.
+     * The operation is not executed again if the connection breaks
+     *
+     * @param cmisParameters Parameter to access the repository
+     * @param operation      operation to execute
+     * @return the result of the operation
+     * @throws Exception if the operation failed
+     */
+    public <T> T executeUpdate(CmisParameters cmisParameters, CmisConnectionPool.CmisOperation<T> operation) throws Exception {
+        return getPool(cmisParameters).execute(operation, false);
+    }
+
+    /**
+     * Return the pool of connections for a repository
+     *
+     * @param cmisParameters Parameter to access the repository
+     * @return the pool
+     */
+    public CmisConnectionPool getPool(CmisParameters cmisParameters) {
+        evictIdleConnections();
+        return allPools.computeIfAbsent(getSignature(cmisParameters),
+                signature -> new CmisConnectionPool(cmisParameters, poolMaxSize, acquireTimeout.toMillis(), idleTimeout.toMillis(), validationInterval.toMillis()));
     }
 
+    /**
+     * Maximum number of connections per repository. Apply to the pools created after the call
+     *
+     * @param poolMaxSize maximum number of connections
+     */
+    public void setPoolMaxSize(int poolMaxSize) {
+        this.poolMaxSize = poolMaxSize;
+    }
+
+    /**
+     * Maximum time to wait for a connection when all connections are in use. Apply to the pools created after the call
+     *
+     * @param acquireTimeout time to wait
+     */
+    public void setAcquireTimeout(Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    /**
+     * A connection not used during this delay is disconnected. Apply to the pools created after the call
+     *
+     * @param idleTimeout delay
+     */
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * A connection not used during this delay is checked before being reused. Apply to the pools created after the call
+     *
+     * @param validationInterval delay
+     */
+    public void setValidationInterval(Duration validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+
+    /**
+     * Disconnect all idle connections, and remove all pools
+     */
+    public void closeAll() {
+        for (String signature : allPools.keySet()) {
+            CmisConnectionPool pool = allPools.remove(signature);
+            if (pool != null)
+                pool.close();
+        }
+    }
 
     /**
      * Calculate a uniq signature for a CMIS repository
@@ -45,4 +146,15 @@ public class CmisFactoryConnection {
     public String getSignature(CmisParameters cmisParameters) {
         return cmisParameters.typeConnection.toString() + "#" + cmisParameters.url + "#" + cmisParameters.repositoryName + "#" + cmisParameters.userName;
     }
+
+    /**
+     * Pools are checked at most once per minute
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastEvictionCheck < 60_000)
+            return;
+        lastEvictionCheck = now;
+        allPools.values().forEach(CmisConnectionPool::evictIdle);
+    }
 }
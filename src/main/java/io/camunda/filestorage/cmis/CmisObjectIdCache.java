@@ -0,0 +1,53 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  CmisObjectIdCache                                                   */
+/*                                                                      */
+/*  Bounded LRU cache path -> object ID, shared by the connections of   */
+/*  a repository. Resolving a path is an extra round trip: when the ID  */
+/*  is known, the object is accessed directly by its ID                 */
+/* ******************************************************************** */
+package io.camunda.filestorage.cmis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CmisObjectIdCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Map<String, String> pathToId;
+
+    public CmisObjectIdCache(int maxEntries) {
+        this.pathToId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param path path of the object
+     * @return the object ID, null if the path is not in the cache
+     */
+    public synchronized String get(String path) {
+        return pathToId.get(path);
+    }
+
+    public synchronized void put(String path, String objectId) {
+        pathToId.put(path, objectId);
+    }
+
+    /**
+     * The object does not exist anymore, or the ID is not valid
+     *
+     * @param path path of the object
+     */
+    public synchronized void evict(String path) {
+        pathToId.remove(path);
+    }
+
+    public synchronized int size() {
+        return pathToId.size();
+    }
+}
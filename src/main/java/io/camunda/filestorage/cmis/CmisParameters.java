@@ -43,6 +43,9 @@ public class CmisParameters {
         if (cmisDefinition instanceof Map cmisDefinitionMap) {
             cmisParameters.url = (String) cmisDefinitionMap.get("url");
             cmisParameters.repositoryName = (String) cmisDefinitionMap.get("repository");
+            // StorageCMIS.getStorageDefinitionString() saves the field name
+            if (cmisParameters.repositoryName == null)
+                cmisParameters.repositoryName = (String) cmisDefinitionMap.get("repositoryName");
             if (cmisParameters.repositoryName == null)
                 cmisParameters.repositoryName = "default";
             cmisParameters.userName = (String) cmisDefinitionMap.get("userName");
@@ -0,0 +1,225 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  GoogleDriveFactoryConnection                                        */
+/*                                                                      */
+/*  Manage all Drive clients. One client per credential (hash of the    */
+/*  service account key): the OAuth token is reused between operations */
+/*  All clients share the same HTTP transport                           */
+/* ******************************************************************** */
+package io.camunda.filestorage.googledrive;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
+import com.google.api.client.http.HttpBackOffIOExceptionHandler;
+import com.google.api.client.http.HttpBackOffUnsuccessfulResponseHandler;
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.ExponentialBackOff;
+import com.google.api.services.drive.Drive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class GoogleDriveFactoryConnection {
+    Logger logger = LoggerFactory.getLogger(GoogleDriveFactoryConnection.class.getName());
+
+    public static final String APPLICATION_NAME = "FileStorage";
+    public static final String DRIVE_SCOPE = "https://www.googleapis.com/auth/drive";
+
+    /**
+     * A failed request is retried with an exponential back off, until this delay
+     */
+    public static final Duration DEFAULT_RETRY_MAX_ELAPSED_TIME = Duration.ofMinutes(1);
+
+    private static final GoogleDriveFactoryConnection singletonGoogleDriveFactory = new GoogleDriveFactoryConnection();
+
+    /**
+     * Size of a chunk in a resumable upload. A chunk is the unit to resume an upload: a failed chunk is sent again
+     */
+    public static final int DEFAULT_UPLOAD_CHUNK_SIZE = MediaHttpUploader.DEFAULT_CHUNK_SIZE;
+
+    private final Map<String, Drive> allDrives = new ConcurrentHashMap<>();
+    private volatile HttpTransport httpTransport;
+    private volatile int uploadChunkSize = DEFAULT_UPLOAD_CHUNK_SIZE;
+    private volatile int retryMaxElapsedTimeMs = (int) DEFAULT_RETRY_MAX_ELAPSED_TIME.toMillis();
+    private volatile String rootUrl = Drive.DEFAULT_ROOT_URL;
+
+    public static GoogleDriveFactoryConnection getInstance() {
+        return singletonGoogleDriveFactory;
+    }
+
+    /**
+     * Return the Drive client for a service account key. The client is created at the first call, then shared.
+     *
+     * @param jsonKey service account key, in JSON
+     * @return the Drive client
+     * @throws Exception if the key is not valid, or the transport can't be created
+     */
+    public Drive getDrive(String jsonKey) throws Exception {
+        String signature = getSignature(jsonKey);
+        Drive drive = allDrives.get(signature);
+        if (drive != null)
+            return drive;
+        synchronized (this) {
+            drive = allDrives.get(signature);
+            if (drive == null) {
+                drive = createDrive(jsonKey);
+                allDrives.put(signature, drive);
+            }
+            return drive;
+        }
+    }
+
+    /**
+     * Size of a chunk in a resumable upload. The size is rounded up to a multiple of 256 KB, as requested by Google Drive
+     *
+     * @param uploadChunkSize size in bytes
+     */
+    public void setUploadChunkSize(int uploadChunkSize) {
+        int minimum = MediaHttpUploader.MINIMUM_CHUNK_SIZE;
+        this.uploadChunkSize = Math.max(minimum, (uploadChunkSize + minimum - 1) / minimum * minimum);
+    }
+
+    public int getUploadChunkSize() {
+        return uploadChunkSize;
+    }
+
+    /**
+     * Maximum delay to retry a failed request. After this delay, the error is returned to the caller
+     *
+     * @param retryMaxElapsedTime delay
+     */
+    public void setRetryMaxElapsedTime(Duration retryMaxElapsedTime) {
+        this.retryMaxElapsedTimeMs = (int) Math.min(Integer.MAX_VALUE, retryMaxElapsedTime.toMillis());
+    }
+
+    /**
+     * Root URL of the Drive API. Change it to access a local server which simulates Google Drive, for tests.
+     * Apply to the clients created after the call: call closeAll() to recreate the existing clients
+     *
+     * @param rootUrl root URL, ending with a slash (default https://www.googleapis.com/)
+     */
+    public void setRootUrl(String rootUrl) {
+        this.rootUrl = rootUrl;
+    }
+
+    /**
+     * Remove all Drive clients. The next call creates new clients (and asks new OAuth tokens)
+     */
+    public void closeAll() {
+        allDrives.clear();
+    }
+
+    /**
+     * The HTTP transport loads the trust store: it is created once, and shared by all clients
+     *
+     * @return the transport
+     * @throws GeneralSecurityException if the trust store can't be loaded
+     * @throws IOException              in case of error
+     */
+    public HttpTransport getHttpTransport() throws GeneralSecurityException, IOException {
+        HttpTransport transport = httpTransport;
+        if (transport == null) {
+            synchronized (this) {
+                if (httpTransport == null)
+                    httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+                transport = httpTransport;
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * The signature is a hash of the key: the private key is not kept as a map key
+     *
+     * @param jsonKey service account key, in JSON
+     * @return a signature
+     */
+    public String getSignature(String jsonKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(jsonKey.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory in all JVM
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Drive createDrive(String jsonKey) throws Exception {
+        long beginExecution = System.currentTimeMillis();
+        // Load credentials. The credential refreshes its token when it expires
+        GoogleCredential credential = GoogleCredential.fromStream(new ByteArrayInputStream(jsonKey.getBytes(StandardCharsets.UTF_8)))
+                .createScoped(Collections.singleton(DRIVE_SCOPE));
+
+        Drive drive = new Drive.Builder(
+                getHttpTransport(),
+                JacksonFactory.getDefaultInstance(),
+                getRequestInitializer(credential)
+        ).setApplicationName(APPLICATION_NAME)
+                .setRootUrl(rootUrl)
+                .build();
+        logger.debug("Connected to Google drive in {} ms", System.currentTimeMillis() - beginExecution);
+        return drive;
+    }
+
+    /**
+     * Each request is authorized by the credential. Only the idempotent requests are retried with a back off on
+     * I/O error or server error: GET, DELETE and the chunks of a resumable upload, which the uploader resumes.
+     * A direct upload or a metadata creation is not retried, it could create the file twice.
+     *
+     * @param credential credential
+     * @return the request initializer
+     */
+    private HttpRequestInitializer getRequestInitializer(GoogleCredential credential) {
+        return request -> {
+            credential.initialize(request);
+            HttpUnsuccessfulResponseHandler backOffHandler = new HttpBackOffUnsuccessfulResponseHandler(getBackOff());
+            HttpIOExceptionHandler ioExceptionHandler = new HttpBackOffIOExceptionHandler(getBackOff());
+            // the credential refreshes the token on a 401. The method is known only when the request is executed
+            request.setUnsuccessfulResponseHandler((httpRequest, httpResponse, supportsRetry) ->
+                    credential.handleResponse(httpRequest, httpResponse, supportsRetry)
+                            || (isIdempotent(httpRequest) && backOffHandler.handleResponse(httpRequest, httpResponse, supportsRetry)));
+            request.setIOExceptionHandler((httpRequest, supportsRetry) ->
+                    isIdempotent(httpRequest) && ioExceptionHandler.handleIOException(httpRequest, supportsRetry));
+        };
+    }
+
+    /**
+     * @param request request to execute
+     * @return true if the request can be sent again: a GET, a DELETE or a chunk of a resumable upload
+     */
+    private static boolean isIdempotent(HttpRequest request) {
+        String method = request.getRequestMethod();
+        return HttpMethods.GET.equals(method)
+                || HttpMethods.DELETE.equals(method)
+                || (HttpMethods.PUT.equals(method) && request.getHeaders().getContentRange() != null);
+    }
+
+    /**
+     * The default back off retries during 15 minutes: the delay is bounded by retryMaxElapsedTime
+     *
+     * @return the back off
+     */
+    private ExponentialBackOff getBackOff() {
+        return new ExponentialBackOff.Builder()
+                .setMaxElapsedTimeMillis(retryMaxElapsedTimeMs)
+                .build();
+    }
+}
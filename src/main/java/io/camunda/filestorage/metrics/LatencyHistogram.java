@@ -0,0 +1,87 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  LatencyHistogram                                                    */
+/*                                                                      */
+/*  Histogram of durations in nanoseconds, with fixed buckets: each     */
+/*  power of two is split in 4 sub-buckets, so a percentile is known    */
+/*  within 25%. Recording is lock free and does not allocate.           */
+/* ******************************************************************** */
+package io.camunda.filestorage.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param durationNanos duration to record
+     */
+    public void record(long durationNanos) {
+        long value = Math.max(0, durationNanos);
+        buckets.incrementAndGet(getBucket(value));
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Return an approximation of the percentile: the upper bound of the bucket where the percentile is
+     *
+     * @param percentile between 0 and 1, for example 0.99
+     * @return the duration in nanoseconds, 0 if nothing is recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = getCount();
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= rank)
+                return Math.min(getUpperBound(bucket), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            total += buckets.get(bucket);
+        return total;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Values below 4 have their own bucket. Above, the bucket is the position of the highest bit, and the 2 next bits
+     */
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int highestBit = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        if (highestBit >= 62)
+            return Long.MAX_VALUE;
+        long lowerBound = (1L << highestBit) + ((long) subBucket << (highestBit - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (highestBit - SUB_BUCKET_BITS)) - 1;
+    }
+}
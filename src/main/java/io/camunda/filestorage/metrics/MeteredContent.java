@@ -0,0 +1,174 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  MeteredContent                                                      */
+/*                                                                      */
+/*  Content returned by a load. Storages read the content lazily: the   */
+/*  transfer is recorded as a READ operation, from the opening of the   */
+/*  stream to its end or its close, with the bytes actually read.       */
+/* ******************************************************************** */
+package io.camunda.filestorage.metrics;
+
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.storage.StorageDefinition;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MeteredContent extends FileContent {
+
+    private final FileContent content;
+    private final StorageMetrics metrics;
+    private final StorageDefinition.StorageDefinitionType type;
+
+    /**
+     * @param content content to measure
+     * @param metrics where the reads are recorded
+     * @param type    type of the storage
+     */
+    public MeteredContent(FileContent content, StorageMetrics metrics, StorageDefinition.StorageDefinitionType type) {
+        this.content = content;
+        this.metrics = metrics;
+        this.type = type;
+    }
+
+    @Override
+    public long getLength() {
+        return content.getLength();
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        metrics.onStart(type, StorageMetrics.Operation.READ);
+        long start = System.nanoTime();
+        try {
+            return new MeteredInputStream(content.openStream(), start);
+        } catch (IOException | RuntimeException e) {
+            metrics.onEnd(type, StorageMetrics.Operation.READ, System.nanoTime() - start, 0, false);
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream openStream(long offset, long length) throws IOException {
+        metrics.onStart(type, StorageMetrics.Operation.READ);
+        long start = System.nanoTime();
+        try {
+            return new MeteredInputStream(content.openStream(offset, length), start);
+        } catch (IOException | RuntimeException e) {
+            metrics.onEnd(type, StorageMetrics.Operation.READ, System.nanoTime() - start, 0, false);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return content.isRepeatable();
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return content.isInMemory();
+    }
+
+    /**
+     * A caller using the local file directly is not measured
+     */
+    @Override
+    public Path getPath() {
+        return content.getPath();
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel channel) throws IOException {
+        metrics.onStart(type, StorageMetrics.Operation.READ);
+        long start = System.nanoTime();
+        long bytes = 0;
+        boolean success = false;
+        try {
+            bytes = content.transferTo(channel);
+            success = true;
+            return bytes;
+        } finally {
+            metrics.onEnd(type, StorageMetrics.Operation.READ, System.nanoTime() - start, bytes, success);
+        }
+    }
+
+    @Override
+    public byte[] readAllBytes() throws IOException {
+        metrics.onStart(type, StorageMetrics.Operation.READ);
+        long start = System.nanoTime();
+        long bytes = 0;
+        boolean success = false;
+        try {
+            byte[] value = content.readAllBytes();
+            bytes = value.length;
+            success = true;
+            return value;
+        } finally {
+            metrics.onEnd(type, StorageMetrics.Operation.READ, System.nanoTime() - start, bytes, success);
+        }
+    }
+
+    /**
+     * Count the bytes read. The READ is recorded once, at the end of the content or at the close
+     */
+    private class MeteredInputStream extends FilterInputStream {
+        private final long start;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private long bytes = 0;
+        private boolean failed = false;
+
+        MeteredInputStream(InputStream inputStream, long start) {
+            super(inputStream);
+            this.start = start;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int value = super.read();
+                if (value == -1)
+                    record();
+                else
+                    bytes++;
+                return value;
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = super.read(buffer, offset, length);
+                if (read == -1)
+                    record();
+                else
+                    bytes += read;
+                return read;
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                record();
+            }
+        }
+
+        private void record() {
+            if (recorded.compareAndSet(false, true))
+                metrics.onEnd(type, StorageMetrics.Operation.READ, System.nanoTime() - start, bytes, !failed);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  MicrometerStorageMetrics                                            */
+/*                                                                      */
+/*  Micrometer binding of StorageMetrics. The meters are registered at  */
+/*  the creation, tagged with the storage type, the operation and the   */
+/*  outcome: recording does not look up the registry.                   */
+/*  Micrometer is not a dependency of the library: the application      */
+/*  which uses this class provides it.                                  */
+/*                                                                      */
+/*  filestorage.operation (timer)       type, operation, outcome        */
+/*  filestorage.bytes (counter)         type, operation                 */
+/*  filestorage.inflight (gauge)        type, operation                 */
+/* ******************************************************************** */
+package io.camunda.filestorage.metrics;
+
+import io.camunda.filestorage.storage.StorageDefinition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MicrometerStorageMetrics implements StorageMetrics {
+
+    public static final String METER_OPERATION = "filestorage.operation";
+    public static final String METER_BYTES = "filestorage.bytes";
+    public static final String METER_IN_FLIGHT = "filestorage.inflight";
+
+    private final Timer[][] successTimers;
+    private final Timer[][] errorTimers;
+    private final Counter[][] bytesCounters;
+    private final AtomicLong[][] inFlight;
+
+    /**
+     * @param meterRegistry registry where the meters are registered
+     */
+    public MicrometerStorageMetrics(MeterRegistry meterRegistry) {
+        StorageDefinition.StorageDefinitionType[] types = StorageDefinition.StorageDefinitionType.values();
+        Operation[] operations = Operation.values();
+        successTimers = new Timer[types.length][operations.length];
+        errorTimers = new Timer[types.length][operations.length];
+        bytesCounters = new Counter[types.length][operations.length];
+        inFlight = new AtomicLong[types.length][operations.length];
+        for (StorageDefinition.StorageDefinitionType type : types) {
+            for (Operation operation : operations) {
+                int t = type.ordinal();
+                int o = operation.ordinal();
+                successTimers[t][o] = buildTimer(meterRegistry, type, operation, "success");
+                errorTimers[t][o] = buildTimer(meterRegistry, type, operation, "error");
+                bytesCounters[t][o] = Counter.builder(METER_BYTES)
+                        .description("Bytes read (READ) or written (SAVE)")
+                        .baseUnit("bytes")
+                        .tag("type", type.toString())
+                        .tag("operation", operation.toString())
+                        .register(meterRegistry);
+                inFlight[t][o] = new AtomicLong();
+                Gauge.builder(METER_IN_FLIGHT, inFlight[t][o], AtomicLong::get)
+                        .description("Operations in progress")
+                        .tag("type", type.toString())
+                        .tag("operation", operation.toString())
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    private static Timer buildTimer(MeterRegistry meterRegistry, StorageDefinition.StorageDefinitionType type, Operation operation, String outcome) {
+        return Timer.builder(METER_OPERATION)
+                .description("Duration of the storage operations")
+                .tag("type", type.toString())
+                .tag("operation", operation.toString())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onStart(StorageDefinition.StorageDefinitionType type, Operation operation) {
+        inFlight[type.ordinal()][operation.ordinal()].incrementAndGet();
+    }
+
+    @Override
+    public void onEnd(StorageDefinition.StorageDefinitionType type, Operation operation, long durationNanos, long bytes, boolean success) {
+        int t = type.ordinal();
+        int o = operation.ordinal();
+        inFlight[t][o].decrementAndGet();
+        (success ? successTimers : errorTimers)[t][o].record(durationNanos, TimeUnit.NANOSECONDS);
+        if (bytes > 0)
+            bytesCounters[t][o].increment(bytes);
+    }
+}
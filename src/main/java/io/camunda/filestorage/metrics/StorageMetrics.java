@@ -0,0 +1,55 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageMetrics                                                      */
+/*                                                                      */
+/*  Instrumentation SPI of the FileRepoFactory. The factory calls it    */
+/*  around each load, read, save and purge, with the storage type. An   */
+/*  implementation must be thread safe, and should not allocate: it is  */
+/*  called on each operation.                                           */
+/*  Implementations: StorageMetricsRegistry (default, no dependency),   */
+/*  MicrometerStorageMetrics (Micrometer binding)                       */
+/* ******************************************************************** */
+package io.camunda.filestorage.metrics;
+
+import io.camunda.filestorage.storage.StorageDefinition;
+
+public interface StorageMetrics {
+
+    /**
+     * Record nothing
+     */
+    StorageMetrics NONE = new StorageMetrics() {
+        @Override
+        public void onStart(StorageDefinition.StorageDefinitionType type, Operation operation) {
+        }
+
+        @Override
+        public void onEnd(StorageDefinition.StorageDefinitionType type, Operation operation, long durationNanos, long bytes, boolean success) {
+        }
+    };
+
+    /**
+     * An operation starts
+     *
+     * @param type      type of the storage
+     * @param operation the operation
+     */
+    void onStart(StorageDefinition.StorageDefinitionType type, Operation operation);
+
+    /**
+     * The operation started with onStart() is finished
+     *
+     * @param type          type of the storage
+     * @param operation     the operation
+     * @param durationNanos duration of the operation
+     * @param bytes         bytes read (READ) or written (SAVE), 0 when the length is not known
+     * @param success       false if the operation failed
+     */
+    void onEnd(StorageDefinition.StorageDefinitionType type, Operation operation, long durationNanos, long bytes, boolean success);
+
+    /**
+     * LOAD: access to the file, which does not read the content for lazy storages. READ: transfer of the content, from
+     * the opening of a stream to its end or its close. CACHE_HIT: a load served by the read cache
+     */
+    enum Operation {LOAD, SAVE, PURGE, READ, CACHE_HIT}
+}
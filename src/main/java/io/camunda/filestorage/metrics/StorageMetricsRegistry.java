@@ -0,0 +1,130 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageMetricsRegistry                                              */
+/*                                                                      */
+/*  Default StorageMetrics, without dependency: one OperationMetrics    */
+/*  per storage type and operation, created at the start. Recording     */
+/*  only updates counters and a histogram: no lock, no allocation.      */
+/* ******************************************************************** */
+package io.camunda.filestorage.metrics;
+
+import io.camunda.filestorage.storage.StorageDefinition;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StorageMetricsRegistry implements StorageMetrics {
+
+    private final OperationMetrics[][] allMetrics;
+
+    public StorageMetricsRegistry() {
+        StorageDefinition.StorageDefinitionType[] types = StorageDefinition.StorageDefinitionType.values();
+        Operation[] operations = Operation.values();
+        allMetrics = new OperationMetrics[types.length][operations.length];
+        for (StorageDefinition.StorageDefinitionType type : types) {
+            for (Operation operation : operations)
+                allMetrics[type.ordinal()][operation.ordinal()] = new OperationMetrics(type, operation);
+        }
+    }
+
+    @Override
+    public void onStart(StorageDefinition.StorageDefinitionType type, Operation operation) {
+        allMetrics[type.ordinal()][operation.ordinal()].inFlight.increment();
+    }
+
+    @Override
+    public void onEnd(StorageDefinition.StorageDefinitionType type, Operation operation, long durationNanos, long bytes, boolean success) {
+        OperationMetrics operationMetrics = allMetrics[type.ordinal()][operation.ordinal()];
+        operationMetrics.inFlight.decrement();
+        operationMetrics.count.increment();
+        if (!success)
+            operationMetrics.errors.increment();
+        if (bytes > 0)
+            operationMetrics.bytes.add(bytes);
+        operationMetrics.latency.record(durationNanos);
+    }
+
+    /**
+     * @param type      type of the storage
+     * @param operation the operation
+     * @return the metrics of the operation on this type of storage
+     */
+    public OperationMetrics getMetrics(StorageDefinition.StorageDefinitionType type, Operation operation) {
+        return allMetrics[type.ordinal()][operation.ordinal()];
+    }
+
+    /**
+     * @return one line per storage type and operation used
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (OperationMetrics[] typeMetrics : allMetrics) {
+            for (OperationMetrics operationMetrics : typeMetrics) {
+                if (operationMetrics.getCount() > 0 || operationMetrics.getInFlight() > 0)
+                    result.append(operationMetrics).append("\n");
+            }
+        }
+        return result.toString();
+    }
+
+    public static class OperationMetrics {
+        private final StorageDefinition.StorageDefinitionType type;
+        private final Operation operation;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        OperationMetrics(StorageDefinition.StorageDefinitionType type, Operation operation) {
+            this.type = type;
+            this.operation = operation;
+        }
+
+        public StorageDefinition.StorageDefinitionType getType() {
+            return type;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return number of operations finished, failed included
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * @return bytes read (READ) or written (SAVE), when the length is known
+         */
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        public long getInFlight() {
+            return inFlight.sum();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return type + "." + operation + " count[" + getCount() + "] errors[" + getErrors() + "] bytes[" + getBytes()
+                    + "] inFlight[" + getInFlight() + "] p50[" + toMicros(latency.getPercentileNanos(0.5))
+                    + " us] p99[" + toMicros(latency.getPercentileNanos(0.99)) + " us] max[" + toMicros(latency.getMaxNanos()) + " us]";
+        }
+
+        private static long toMicros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package io.camunda.filestorage.storage;
 
+import io.camunda.filestorage.BatchResult;
 import io.camunda.filestorage.FileRepoFactory;
 import io.camunda.filestorage.FileVariable;
 import io.camunda.filestorage.FileVariableReference;
 
+import java.nio.file.Path;
+import java.util.List;
+
 public abstract class Storage {
 
     private final StorageDefinition storageDefinition;
@@ -45,6 +49,20 @@ public abstract class Storage {
      */
     public abstract FileVariableReference toStorage(FileVariable fileVariable, FileVariableReference fileVariableReference) throws Exception;
 
+    /**
+     * Move a local file into the storage, without copying the content.
+     * Storages on the local file system override this method to rename the file. By default, the storage can't move
+     * the file, and the caller must copy the content then purge the source.
+     *
+     * @param fileVariable file to save
+     * @param sourcePath   local file which contains the content
+     * @return a FileVariableReference, or null if the storage can't move the file
+     * @throws Exception if an error arrived
+     */
+    public FileVariableReference moveToStorage(FileVariable fileVariable, Path sourcePath) throws Exception {
+        return null;
+    }
+
     /**
      * Return a File variable from a FileVariableReference
      *
@@ -62,4 +80,24 @@ public abstract class Storage {
      */
     public abstract boolean purgeStorage(FileVariableReference fileVariableReference) throws Exception;
 
+    /**
+     * Purge a list of references in one exchange with the storage.
+     * Storages able to group the deletions override this method. By default, the storage can't, and the caller
+     * purges the references one by one.
+     *
+     * @param fileVariableReferences references to purge
+     * @return one result per reference, in the same order, or null if the storage can't purge a list
+     * @throws Exception if an error arrived
+     */
+    public List<BatchResult<Boolean>> purgeStorage(List<FileVariableReference> fileVariableReferences) throws Exception {
+        return null;
+    }
+
+    /**
+     * The storage is removed from the factory registry (not used for a while). Release any resources here.
+     */
+    public void close() {
+        // nothing to release by default
+    }
+
 }
@@ -7,19 +7,21 @@
 package io.camunda.filestorage.storage;
 
 import com.google.gson.Gson;
+import io.camunda.filestorage.FileContent;
 import io.camunda.filestorage.FileRepoFactory;
 import io.camunda.filestorage.FileVariable;
 import io.camunda.filestorage.FileVariableReference;
 import io.camunda.filestorage.cmis.CmisConnection;
 import io.camunda.filestorage.cmis.CmisFactoryConnection;
 import io.camunda.filestorage.cmis.CmisParameters;
-import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 public class StorageCMIS extends Storage {
     Logger logger = LoggerFactory.getLogger(StorageCMIS.class.getName());
@@ -67,30 +69,47 @@ public class StorageCMIS extends Storage {
      */
     public FileVariableReference toStorage(FileVariable fileVariable, FileVariableReference fileVariableReference) throws Exception {
         CmisParameters cmisParameters = CmisParameters.getCodingConnection(getStorageDefinition().complementInObject);
-        CmisConnection cmisConnection = CmisFactoryConnection.getInstance().getCmisConnection(cmisParameters);
-        if (cmisConnection == null)
-            throw new Exception("Can't connect the the CMIS repository");
-        ByteArrayInputStream documentValue = new ByteArrayInputStream(fileVariable.getValue());
         // Add a random timestamp on the document name
-
         String uniqId = getFileRepoFactory().generateUniqId();
-        Folder folder = cmisConnection.getFolderByPath(cmisParameters.storageDefinitionFolder);
-        if (folder == null)
-            throw new Exception("Folder [" + cmisParameters.storageDefinitionFolder + "] does not exists");
 
-        cmisConnection.uploadNewDocument(
-                CmisConnection.DocumentProperties.getDocument(cmisParameters.storageDefinitionFolder, fileVariable.getName() + uniqId),
-                documentValue,
-                fileVariable.getValue().length,
-                fileVariable.getMimeType());
+        String documentName = fileVariable.getName() + uniqId;
+        String documentId;
+        try {
+            documentId = createDocument(cmisParameters, fileVariable, documentName);
+        } catch (CmisObjectNotFoundException e) {
+            // the folder ID in the cache is not valid anymore, and it is evicted. Try again if the content can be read again
+            if (fileVariable.getContent() != null && !fileVariable.getContent().isRepeatable())
+                throw e;
+            documentId = createDocument(cmisParameters, fileVariable, documentName);
+        }
 
         FileVariableReference fileVariableReferenceOutput = new FileVariableReference();
         fileVariableReferenceOutput.storageDefinition = getStorageDefinition().encodeToString();
-        fileVariableReferenceOutput.content = fileVariable.getName() + uniqId;
+        fileVariableReferenceOutput.content = documentName;
+        // with the object ID, the document is accessed directly, without resolving its path
+        fileVariableReferenceOutput.storageObjectId = documentId;
         return fileVariableReferenceOutput;
 
     }
 
+    /**
+     * Create the document. The content is streamed to the repository. The creation is not executed again if the
+     * connection breaks: the document may be created, and the stream consumed
+     *
+     * @return the object ID of the document
+     */
+    private String createDocument(CmisParameters cmisParameters, FileVariable fileVariable, String documentName) throws Exception {
+        return CmisFactoryConnection.getInstance().executeUpdate(cmisParameters, cmisConnection -> {
+            try (InputStream documentValue = fileVariable.getContent() == null ? InputStream.nullInputStream() : fileVariable.getContent().openStream()) {
+                return cmisConnection.createDocument(
+                        CmisConnection.DocumentProperties.getDocument(cmisParameters.storageDefinitionFolder, documentName),
+                        documentValue,
+                        fileVariable.getContent() == null ? 0 : fileVariable.getContentLength(),
+                        fileVariable.getMimeType());
+            }
+        });
+    }
+
     /**
      * read the fileVariable
      *
@@ -100,25 +119,16 @@ public class StorageCMIS extends Storage {
      */
     public FileVariable fromStorage(FileVariableReference fileVariableReference) throws Exception {
         CmisParameters cmisParameters = CmisParameters.getCodingConnection(getStorageDefinition().complementInObject);
-        CmisConnection cmisConnection = CmisFactoryConnection.getInstance().getCmisConnection(cmisParameters);
-        if (cmisConnection == null)
-            throw new Exception("Can't connect the the CMIS repository");
-        ContentStream documentStream = cmisConnection.getDocumentByPath(cmisParameters.storageDefinitionFolder, fileVariableReference.content.toString());
-        FileVariable fileVariable = new FileVariable(getStorageDefinition());
-        fileVariable.setName(fileVariableReference.content.toString());
-        fileVariable.setMimeType(documentStream.getMimeType());
         try {
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-
-            int nRead;
-            byte[] data = new byte[4000];
-
-            while ((nRead = documentStream.getStream().read(data, 0, data.length)) != -1) {
-                buffer.write(data, 0, nRead);
-            }
-
-            buffer.flush();
-            fileVariable.setValue(buffer.toByteArray());
+            // only the document properties are read here. The content is read when the caller opens it
+            Document document = CmisFactoryConnection.getInstance().execute(cmisParameters,
+                    cmisConnection -> getDocument(cmisConnection, cmisParameters, fileVariableReference));
+            String documentId = document.getId();
+            FileVariable fileVariable = new FileVariable(getStorageDefinition());
+            fileVariable.setName(fileVariableReference.content.toString());
+            fileVariable.setMimeType(document.getContentStreamMimeType());
+            fileVariable.setContent(FileContent.fromRangeSupplier((offset, length) -> openContent(cmisParameters, documentId, offset, length),
+                    document.getContentStreamLength()));
             return fileVariable;
         } catch (Exception e) {
             logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageCMIS.class) + ": exception " + e + " During read file[" + fileVariableReference.content.toString() + "]");
@@ -127,6 +137,48 @@ public class StorageCMIS extends Storage {
     }
 
 
+    /**
+     * Access the document by its object ID when the reference has one, else by its path.
+     * References saved before the object ID, or an ID not valid anymore, are resolved by the path
+     *
+     * @param cmisConnection        connection to the repository
+     * @param cmisParameters        parameters to access the repository
+     * @param fileVariableReference reference to the document
+     * @return the document
+     */
+    private Document getDocument(CmisConnection cmisConnection, CmisParameters cmisParameters, FileVariableReference fileVariableReference) {
+        if (fileVariableReference.storageObjectId != null) {
+            try {
+                return cmisConnection.getDocumentById(fileVariableReference.storageObjectId);
+            } catch (CmisObjectNotFoundException e) {
+                logger.debug("StorageCMIS: object [{}] not found, access by path", fileVariableReference.storageObjectId);
+            }
+        }
+        return cmisConnection.getDocument(cmisParameters.storageDefinitionFolder, fileVariableReference.content.toString());
+    }
+
+    /**
+     * Open the content of a document, or a range of the content. The connection goes back to the pool as soon as the
+     * content stream is returned: the session is thread safe, and the body is read on its own HTTP connection
+     *
+     * @param cmisParameters parameters to access the repository
+     * @param documentId     id of the document
+     * @param offset         first byte to read
+     * @param length         number of bytes to read, FileContent.UNKNOWN_LENGTH to read until the end
+     * @return the stream. Closing it closes the HTTP connection of the content
+     * @throws IOException in case of error
+     */
+    private InputStream openContent(CmisParameters cmisParameters, String documentId, long offset, long length) throws IOException {
+        ContentStream contentStream;
+        try {
+            contentStream = CmisFactoryConnection.getInstance().execute(cmisParameters,
+                    cmisConnection -> cmisConnection.getContentStream(documentId, offset, length));
+        } catch (Exception e) {
+            throw new IOException("Can't read document [" + documentId + "]", e);
+        }
+        return contentStream == null || contentStream.getStream() == null ? InputStream.nullInputStream() : contentStream.getStream();
+    }
+
     /**
      * Remove a file in the directory
      * Remove a file in the directory
@@ -136,10 +188,11 @@ public class StorageCMIS extends Storage {
      */
     public boolean purgeStorage(FileVariableReference fileVariableReference) throws Exception {
         CmisParameters cmisParameters = CmisParameters.getCodingConnection(getStorageDefinition().complementInObject);
-        CmisConnection cmisConnection = CmisFactoryConnection.getInstance().getCmisConnection(cmisParameters);
-        if (cmisConnection == null)
-            throw new Exception("Can't connect the the CMIS repository");
-        return cmisConnection.deleteDocumentByPath(cmisParameters.storageDefinitionFolder, fileVariableReference.content.toString());
+        if (fileVariableReference.storageObjectId != null)
+            return CmisFactoryConnection.getInstance().executeUpdate(cmisParameters,
+                    cmisConnection -> cmisConnection.deleteDocumentById(fileVariableReference.storageObjectId,
+                            cmisParameters.storageDefinitionFolder, fileVariableReference.content.toString()));
+        return CmisFactoryConnection.getInstance().executeUpdate(cmisParameters,
+                cmisConnection -> cmisConnection.deleteDocumentByPath(cmisParameters.storageDefinitionFolder, fileVariableReference.content.toString()));
     }
-
 }
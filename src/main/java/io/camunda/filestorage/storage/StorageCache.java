@@ -0,0 +1,584 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageCache                                                        */
+/*                                                                      */
+/*  Read cache shared by the storages which opt in (readCache in the    */
+/*  StorageDefinition). Two tiers: memory, bounded by a number of       */
+/*  bytes, and disk. An entry evicted from the memory spills to the     */
+/*  disk. Both tiers evict the least recently used entries, and the     */
+/*  entries expire after a time to live.                                */
+/* ******************************************************************** */
+package io.camunda.filestorage.storage;
+
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.FileVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StorageCache {
+    Logger logger = LoggerFactory.getLogger(StorageCache.class.getName());
+
+    public static final long DEFAULT_MEMORY_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_DISK_MAX_BYTES = 1024L * 1024 * 1024;
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    /**
+     * Number of invalidation generations. A key uses the generation of its stripe: the memory is bounded, and an
+     * invalidation of another key of the same stripe only skips one fill
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    /**
+     * Least recently used first
+     */
+    private final LinkedHashMap<String, CacheEntry> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, CacheEntry> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes = 0;
+    private long diskBytes = 0;
+    /**
+     * Incremented by invalidate(): a content read before the invalidation does not fill the cache
+     */
+    private final long[] generations = new long[GENERATION_STRIPES];
+
+    private volatile long memoryMaxBytes = DEFAULT_MEMORY_MAX_BYTES;
+    private volatile long diskMaxBytes = DEFAULT_DISK_MAX_BYTES;
+    private volatile long timeToLiveMs = DEFAULT_TIME_TO_LIVE.toMillis();
+    private volatile Path diskFolder = null;
+
+    private final AtomicLong memoryHitCount = new AtomicLong();
+    private final AtomicLong diskHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Maximum size of the memory tier. A file bigger than this size goes directly to the disk tier
+     *
+     * @param memoryMaxBytes size in bytes
+     */
+    public void setMemoryMaxBytes(long memoryMaxBytes) {
+        this.memoryMaxBytes = memoryMaxBytes;
+    }
+
+    /**
+     * Maximum size of the disk tier. 0 disables the disk tier
+     *
+     * @param diskMaxBytes size in bytes
+     */
+    public void setDiskMaxBytes(long diskMaxBytes) {
+        this.diskMaxBytes = diskMaxBytes;
+    }
+
+    /**
+     * Folder for the disk tier. By default, a folder is created in the temporary folder
+     *
+     * @param diskFolder folder
+     */
+    public void setDiskFolder(Path diskFolder) {
+        this.diskFolder = diskFolder;
+    }
+
+    /**
+     * A file is read again from the storage after this delay
+     *
+     * @param timeToLive delay
+     */
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLiveMs = timeToLive.toMillis();
+    }
+
+    /**
+     * Return the cached file
+     *
+     * @param key               key of the file in the cache
+     * @param storageDefinition storage definition of the returned fileVariable
+     * @param reload            open the file from the storage, if the file of the disk tier disappeared
+     * @return the fileVariable, or null if the file is not in the cache
+     */
+    public FileVariable get(String key, StorageDefinition storageDefinition, FileContent.RangeStreamSupplier reload) {
+        CacheEntry entry;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            entry = memoryEntries.get(key);
+            if (entry == null)
+                entry = diskEntries.get(key);
+            if (entry != null && entry.expiresAt <= now) {
+                removeEntry(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        byte[] value = entry.value;
+        if (value != null)
+            memoryHitCount.incrementAndGet();
+        else
+            diskHitCount.incrementAndGet();
+        return toFileVariable(entry, value, storageDefinition, reload);
+    }
+
+    private FileVariable toFileVariable(CacheEntry entry, byte[] value, StorageDefinition storageDefinition, FileContent.RangeStreamSupplier reload) {
+        FileVariable fileVariable = new FileVariable(storageDefinition);
+        fileVariable.setName(entry.name);
+        fileVariable.setOriginalName(entry.originalName);
+        fileVariable.setMimeType(entry.mimeType);
+        if (value != null) {
+            // the array is shared by all the loads: the caller gets a copy
+            fileVariable.setContent(FileContent.fromSharedBytes(value));
+        } else {
+            // the path is not given to the caller: a move must not take the file of the cache
+            FileContent diskContent = FileContent.fromPath(entry.path);
+            fileVariable.setContent(FileContent.fromRangeSupplier((offset, length) -> {
+                try {
+                    return diskContent.openStream(offset, length);
+                } catch (NoSuchFileException e) {
+                    return reload.open(offset, length);
+                }
+            }, entry.size));
+        }
+        return fileVariable;
+    }
+
+    /**
+     * Keep the file in the cache. The content is not read here: the first complete read of the returned content
+     * keeps a copy, and the next loads read this copy. A range read goes to the storage, and is not cached.
+     *
+     * @param key          key of the file in the cache
+     * @param fileVariable file read from the storage
+     * @return the fileVariable to give to the caller
+     */
+    public FileVariable put(String key, FileVariable fileVariable) {
+        FileContent content = fileVariable.getContent();
+        if (content == null)
+            return fileVariable;
+        long length = content.getLength();
+        // a file bigger than the disk tier is not cached. When the length is not known, the copy checks it
+        if ((length < 0 || length > memoryMaxBytes) && (diskMaxBytes <= 0 || length > diskMaxBytes))
+            return fileVariable;
+        long generation;
+        synchronized (this) {
+            generation = generations[getStripe(key)];
+        }
+        fileVariable.setContent(new CachingContent(key, fileVariable, content, generation));
+        return fileVariable;
+    }
+
+    /**
+     * Add an entry, completely read. The entry is dropped if the key was invalidated since the content was loaded,
+     * or if it does not fit in its tier
+     */
+    private void store(String key, CacheEntry entry, long generation) {
+        List<CacheEntry> spilled;
+        synchronized (this) {
+            if (generations[getStripe(key)] != generation || (entry.value == null && entry.size > diskMaxBytes)) {
+                deleteFile(entry);
+                return;
+            }
+            removeEntry(key);
+            if (entry.value != null) {
+                memoryEntries.put(key, entry);
+                memoryBytes += entry.size;
+            } else {
+                diskEntries.put(key, entry);
+                diskBytes += entry.size;
+            }
+            spilled = evictMemory(key);
+            evictDisk(key);
+        }
+        spill(spilled);
+    }
+
+    /**
+     * The file changed, or was purged
+     *
+     * @param key key of the file in the cache
+     */
+    public synchronized void invalidate(String key) {
+        generations[getStripe(key)]++;
+        removeEntry(key);
+    }
+
+    /**
+     * Remove all files
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < generations.length; i++)
+            generations[i]++;
+        for (String key : new ArrayList<>(memoryEntries.keySet()))
+            removeEntry(key);
+        for (String key : new ArrayList<>(diskEntries.keySet()))
+            removeEntry(key);
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHitCount.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    @Override
+    public String toString() {
+        synchronized (this) {
+            return "StorageCache memory=" + memoryEntries.size() + " entries/" + memoryBytes + " bytes, disk=" + diskEntries.size()
+                    + " entries/" + diskBytes + " bytes, memoryHit=" + memoryHitCount.get() + " diskHit=" + diskHitCount.get()
+                    + " miss=" + missCount.get();
+        }
+    }
+
+    /**
+     * Evict expired entries, then the least recently used ones, until the memory tier is under its maximum.
+     *
+     * @param keepKey key just added, kept
+     * @return entries to write on the disk tier
+     */
+    private List<CacheEntry> evictMemory(String keepKey) {
+        List<CacheEntry> spilled = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, CacheEntry>> iterator = memoryEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> mapEntry = iterator.next();
+            CacheEntry entry = mapEntry.getValue();
+            boolean expired = entry.expiresAt <= now;
+            if (!expired && (memoryBytes <= memoryMaxBytes || mapEntry.getKey().equals(keepKey)))
+                continue;
+            iterator.remove();
+            memoryBytes -= entry.size;
+            if (!expired && diskMaxBytes > 0) {
+                entry.key = mapEntry.getKey();
+                spilled.add(entry);
+            }
+        }
+        return spilled;
+    }
+
+    private void evictDisk(String keepKey) {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, CacheEntry>> iterator = diskEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> mapEntry = iterator.next();
+            CacheEntry entry = mapEntry.getValue();
+            if (entry.expiresAt > now && (diskBytes <= diskMaxBytes || mapEntry.getKey().equals(keepKey)))
+                continue;
+            iterator.remove();
+            diskBytes -= entry.size;
+            deleteFile(entry);
+        }
+    }
+
+    /**
+     * Write the entries evicted from the memory on the disk tier
+     */
+    private void spill(List<CacheEntry> spilled) {
+        for (CacheEntry entry : spilled) {
+            if (entry.size > diskMaxBytes)
+                continue;
+            try {
+                writeToDisk(entry, FileContent.fromBytes(entry.value));
+            } catch (IOException e) {
+                logger.error("StorageCache: can't spill on disk: {}", e.getMessage());
+                continue;
+            }
+            synchronized (this) {
+                // the entry may be invalidated, or loaded again, during the write
+                if (memoryEntries.containsKey(entry.key) || diskEntries.containsKey(entry.key)) {
+                    deleteFile(entry);
+                    continue;
+                }
+                // the path is set: a get() reading the entry now reads the disk copy
+                entry.value = null;
+                diskEntries.put(entry.key, entry);
+                diskBytes += entry.size;
+                evictDisk(entry.key);
+            }
+        }
+    }
+
+    private void writeToDisk(CacheEntry entry, FileContent content) throws IOException {
+        Path folder = getDiskFolder();
+        Path path = Files.createTempFile(folder, "cache", ".bin");
+        try (InputStream inputStream = content.openStream();
+             OutputStream outputStream = Files.newOutputStream(path)) {
+            entry.size = inputStream.transferTo(outputStream);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        entry.path = path;
+    }
+
+    private synchronized Path getDiskFolder() throws IOException {
+        if (diskFolder == null)
+            diskFolder = Files.createTempDirectory("filestorage-cache");
+        Files.createDirectories(diskFolder);
+        return diskFolder;
+    }
+
+    private static int getStripe(String key) {
+        return (key.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+    }
+
+    private void removeEntry(String key) {
+        CacheEntry entry = memoryEntries.remove(key);
+        if (entry != null)
+            memoryBytes -= entry.size;
+        entry = diskEntries.remove(key);
+        if (entry != null) {
+            diskBytes -= entry.size;
+            deleteFile(entry);
+        }
+    }
+
+    private void deleteFile(CacheEntry entry) {
+        if (entry.path == null)
+            return;
+        try {
+            Files.deleteIfExists(entry.path);
+        } catch (IOException e) {
+            logger.error("StorageCache: can't delete [{}]: {}", entry.path, e.getMessage());
+        }
+    }
+
+    /**
+     * Content read from the storage. The first complete read fills the cache
+     */
+    private class CachingContent extends FileContent {
+        private final String key;
+        private final FileVariable fileVariable;
+        private final FileContent content;
+        private final long generation;
+        private final AtomicBoolean filled = new AtomicBoolean();
+
+        CachingContent(String key, FileVariable fileVariable, FileContent content, long generation) {
+            this.key = key;
+            this.fileVariable = fileVariable;
+            this.content = content;
+            this.generation = generation;
+        }
+
+        @Override
+        public long getLength() {
+            return content.getLength();
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            InputStream inputStream = content.openStream();
+            if (filled.get())
+                return inputStream;
+            return new CachingInputStream(inputStream, this);
+        }
+
+        @Override
+        public InputStream openStream(long offset, long length) throws IOException {
+            return content.openStream(offset, length);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return content.isRepeatable();
+        }
+
+        @Override
+        public long transferTo(WritableByteChannel channel) throws IOException {
+            if (filled.get())
+                return content.transferTo(channel);
+            return super.transferTo(channel);
+        }
+    }
+
+    /**
+     * Copy the bytes read in the memory, or in a file of the disk tier. The entry is added when the end of the
+     * content is reached; a stream closed before the end is not cached
+     */
+    private class CachingInputStream extends FilterInputStream {
+        private final CachingContent cachingContent;
+        private ByteArrayOutputStream memoryCopy;
+        private Path diskPath;
+        private OutputStream diskCopy;
+        private final long expectedLength;
+        private long copied = 0;
+        private boolean done = false;
+
+        CachingInputStream(InputStream inputStream, CachingContent cachingContent) {
+            super(inputStream);
+            this.cachingContent = cachingContent;
+            expectedLength = cachingContent.content.getLength();
+            if (expectedLength >= 0 && expectedLength <= memoryMaxBytes) {
+                memoryCopy = new ByteArrayOutputStream((int) expectedLength);
+                return;
+            }
+            try {
+                diskPath = Files.createTempFile(getDiskFolder(), "cache", ".bin");
+                diskCopy = Files.newOutputStream(diskPath);
+            } catch (IOException e) {
+                logger.error("StorageCache: can't write on disk: {}", e.getMessage());
+                abort();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value == -1)
+                complete();
+            else
+                copy(new byte[]{(byte) value}, 0, 1);
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count == -1)
+                complete();
+            else if (count > 0)
+                copy(buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // the skipped bytes are not copied
+            abort();
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                abort();
+            }
+        }
+
+        private void copy(byte[] buffer, int offset, int count) {
+            if (done)
+                return;
+            if (memoryCopy != null) {
+                if (memoryCopy.size() + count > memoryMaxBytes) {
+                    abort();
+                    return;
+                }
+                memoryCopy.write(buffer, offset, count);
+            } else {
+                // the disk tier keeps a file only if it fits in the tier
+                if (copied + count > diskMaxBytes) {
+                    abort();
+                    return;
+                }
+                try {
+                    diskCopy.write(buffer, offset, count);
+                } catch (IOException e) {
+                    logger.error("StorageCache: can't write on disk: {}", e.getMessage());
+                    abort();
+                    return;
+                }
+            }
+            copied += count;
+            // a caller reading the known length may close the stream without reading the end
+            if (copied == expectedLength)
+                complete();
+        }
+
+        private void complete() {
+            if (done)
+                return;
+            CacheEntry entry = new CacheEntry(cachingContent.fileVariable.getName(), cachingContent.fileVariable.getOriginalName(),
+                    cachingContent.fileVariable.getMimeType(), System.currentTimeMillis() + timeToLiveMs);
+            if (memoryCopy != null) {
+                entry.value = memoryCopy.toByteArray();
+                entry.size = entry.value.length;
+            } else {
+                try {
+                    diskCopy.close();
+                    entry.size = Files.size(diskPath);
+                } catch (IOException e) {
+                    logger.error("StorageCache: can't write on disk: {}", e.getMessage());
+                    abort();
+                    return;
+                }
+                entry.path = diskPath;
+            }
+            done = true;
+            // only one stream fills the cache
+            if (cachingContent.filled.compareAndSet(false, true))
+                store(cachingContent.key, entry, cachingContent.generation);
+            else
+                deleteFile(entry);
+        }
+
+        private void abort() {
+            if (done)
+                return;
+            done = true;
+            memoryCopy = null;
+            if (diskCopy != null) {
+                try {
+                    diskCopy.close();
+                    Files.deleteIfExists(diskPath);
+                } catch (IOException e) {
+                    logger.error("StorageCache: can't delete [{}]: {}", diskPath, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static class CacheEntry {
+        private final String name;
+        private final String originalName;
+        private final String mimeType;
+        private final long expiresAt;
+        private String key;
+        /**
+         * Content in the memory tier. Set to null, after the path, when the entry spills to the disk
+         */
+        private volatile byte[] value;
+        private volatile Path path;
+        private long size;
+
+        CacheEntry(String name, String originalName, String mimeType, long expiresAt) {
+            this.name = name;
+            this.originalName = originalName;
+            this.mimeType = mimeType;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
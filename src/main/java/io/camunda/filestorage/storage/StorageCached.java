@@ -0,0 +1,146 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageCached                                                       */
+/*                                                                      */
+/*  Decorator on a storage: files read are kept in the StorageCache.    */
+/*  A write on a reference, or a purge, invalidates the cached file.    */
+/* ******************************************************************** */
+package io.camunda.filestorage.storage;
+
+import io.camunda.connector.api.document.DocumentReference;
+import io.camunda.filestorage.BatchResult;
+import io.camunda.filestorage.FileRepoFactory;
+import io.camunda.filestorage.FileVariable;
+import io.camunda.filestorage.FileVariableReference;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+public class StorageCached extends Storage {
+
+    private final Storage storage;
+    private final StorageCache storageCache;
+
+    /**
+     * @param storage      storage to decorate
+     * @param storageCache cache, shared by all storages
+     */
+    public StorageCached(Storage storage, StorageCache storageCache, FileRepoFactory fileRepoFactory) {
+        super(storage.getStorageDefinition(), fileRepoFactory);
+        this.storage = storage;
+        this.storageCache = storageCache;
+    }
+
+    @Override
+    public String getName() {
+        return storage.getName();
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    @Override
+    public FileVariableReference toStorage(FileVariable fileVariable, FileVariableReference fileVariableReference) throws Exception {
+        if (fileVariableReference != null)
+            storageCache.invalidate(getKey(fileVariableReference));
+        FileVariableReference fileVariableReferenceOutput = storage.toStorage(fileVariable, fileVariableReference);
+        if (fileVariableReferenceOutput != null)
+            storageCache.invalidate(getKey(fileVariableReferenceOutput));
+        return fileVariableReferenceOutput;
+    }
+
+    @Override
+    public FileVariableReference moveToStorage(FileVariable fileVariable, Path sourcePath) throws Exception {
+        FileVariableReference fileVariableReferenceOutput = storage.moveToStorage(fileVariable, sourcePath);
+        if (fileVariableReferenceOutput != null)
+            storageCache.invalidate(getKey(fileVariableReferenceOutput));
+        return fileVariableReferenceOutput;
+    }
+
+    @Override
+    public FileVariable fromStorage(FileVariableReference fileVariableReference) throws Exception {
+        FileVariable fileVariable = fromCache(fileVariableReference);
+        if (fileVariable != null)
+            return fileVariable;
+        return fromStorageToCache(fileVariableReference);
+    }
+
+    /**
+     * Return the file from the cache
+     *
+     * @param fileVariableReference reference
+     * @return the file, null if it is not in the cache
+     */
+    public FileVariable fromCache(FileVariableReference fileVariableReference) {
+        FileContentReload reload = new FileContentReload(fileVariableReference);
+        return storageCache.get(getKey(fileVariableReference), getStorageDefinition(), reload::open);
+    }
+
+    /**
+     * Read the file from the storage. Its content is added to the cache when it is read
+     *
+     * @param fileVariableReference reference
+     * @return the file
+     * @throws Exception in case of error
+     */
+    public FileVariable fromStorageToCache(FileVariableReference fileVariableReference) throws Exception {
+        return storageCache.put(getKey(fileVariableReference), storage.fromStorage(fileVariableReference));
+    }
+
+    @Override
+    public boolean purgeStorage(FileVariableReference fileVariableReference) throws Exception {
+        storageCache.invalidate(getKey(fileVariableReference));
+        return storage.purgeStorage(fileVariableReference);
+    }
+
+    @Override
+    public List<BatchResult<Boolean>> purgeStorage(List<FileVariableReference> fileVariableReferences) throws Exception {
+        for (FileVariableReference fileVariableReference : fileVariableReferences)
+            storageCache.invalidate(getKey(fileVariableReference));
+        return storage.purgeStorage(fileVariableReferences);
+    }
+
+    @Override
+    public void close() {
+        storage.close();
+    }
+
+    /**
+     * The key is the storage definition and the reference inside the storage
+     *
+     * @param fileVariableReference reference
+     * @return the key in the cache
+     */
+    private String getKey(FileVariableReference fileVariableReference) {
+        String reference;
+        if (fileVariableReference.camundaReference instanceof DocumentReference.CamundaDocumentReference camundaDocumentReference)
+            reference = camundaDocumentReference.getStoreId() + "/" + camundaDocumentReference.getDocumentId();
+        else
+            reference = String.valueOf(fileVariableReference.content);
+        return getStorageDefinition().encodeToString() + "#" + reference;
+    }
+
+    /**
+     * Read the file from the storage again, if the cached copy disappeared
+     */
+    private class FileContentReload {
+        private final FileVariableReference fileVariableReference;
+
+        FileContentReload(FileVariableReference fileVariableReference) {
+            this.fileVariableReference = fileVariableReference;
+        }
+
+        InputStream open(long offset, long length) throws IOException {
+            try {
+                return storage.fromStorage(fileVariableReference).getContent().openStream(offset, length);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Can't read the file from the storage", e);
+            }
+        }
+    }
+}
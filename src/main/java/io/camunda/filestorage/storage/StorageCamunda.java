@@ -3,6 +3,7 @@ package io.camunda.filestorage.storage;
 import io.camunda.connector.api.document.Document;
 import io.camunda.connector.api.document.DocumentCreationRequest;
 import io.camunda.connector.api.outbound.OutboundConnectorContext;
+import io.camunda.filestorage.FileContent;
 import io.camunda.filestorage.FileRepoFactory;
 import io.camunda.filestorage.FileVariable;
 import io.camunda.filestorage.FileVariableReference;
@@ -53,7 +54,8 @@ public class StorageCamunda extends Storage {
         fileVariable.setName(document.metadata().getFileName());
         fileVariable.setMimeType(document.metadata().getContentType());
 
-        fileVariable.setValueStream(document.asInputStream());
+        Long size = document.metadata().getSize();
+        fileVariable.setContent(FileContent.fromSupplier(document::asInputStream, size == null ? FileContent.UNKNOWN_LENGTH : size));
 
         return fileVariable;
     }
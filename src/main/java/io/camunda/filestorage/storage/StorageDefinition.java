@@ -19,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * Why the storageDefinition does not contains the OutboundConnectorContext ?
@@ -30,6 +31,20 @@ public class StorageDefinition {
 
     public final static String ERROR_INCORRECT_STORAGEDEFINITION = "INCORRECT_STORAGEDEFINITION";
     public static final String STORAGE_DEFINITION_DELIMITATEUR = ":";
+    /**
+     * Options are added to the type, for example "CMIS+CACHE:{...}"
+     */
+    public static final String OPTION_DELIMITATEUR = "+";
+    public static final String OPTION_READ_CACHE = "CACHE";
+    public static final String OPTION_DEDUPLICATE = "DEDUP";
+    /**
+     * "SHARD" or "SHARD=<depth>x<width>", for example "FOLDER+SHARD=2x2:/path"
+     */
+    public static final String OPTION_SHARD = "SHARD";
+    /**
+     * "FSYNC=FILE" or "FSYNC=GROUP", "FSYNC=GROUP<ms>" to wait for other writers, for example "FOLDER+FSYNC=GROUP:/path"
+     */
+    public static final String OPTION_FSYNC = "FSYNC";
     static Logger logger = LoggerFactory.getLogger(StorageDefinition.class.getName());
     public StorageDefinitionType type;
     public String complement = null;
@@ -38,6 +53,24 @@ public class StorageDefinition {
      * FileStorage may need complement to connect
      */
     public Object fileStorageComplement;
+    /**
+     * Files read from this storage are kept in the read cache of the factory (see StorageCache)
+     */
+    public boolean readCache = false;
+    /**
+     * FOLDER only: the same content is saved once, and shared by the files (see StorageFolderBlobs)
+     */
+    public boolean deduplicate = false;
+    /**
+     * FOLDER and TEMPFOLDER: files are spread in sub-folders (see StorageShards). 0 means a flat folder
+     */
+    public int shardDepth = 0;
+    public int shardWidth = StorageShards.DEFAULT_WIDTH;
+    /**
+     * FOLDER only: how the files are forced to the disk (see StorageFolderSync)
+     */
+    public FsyncMode fsyncMode = FsyncMode.NONE;
+    public int fsyncGroupWaitMs = 0;
 
     /**
      * A storage must have a type
@@ -109,10 +142,29 @@ public class StorageDefinition {
 
             String storageTypeSt =
                     posDelimiter == -1 ? completeStorageDefinition : completeStorageDefinition.substring(0, posDelimiter);
-            StorageDefinition storageDefinition = new StorageDefinition(StorageDefinitionType.valueOf(storageTypeSt));
+            String[] typeAndOptions = storageTypeSt.split(Pattern.quote(OPTION_DELIMITATEUR));
+            StorageDefinition storageDefinition = new StorageDefinition(StorageDefinitionType.valueOf(typeAndOptions[0]));
+            for (int i = 1; i < typeAndOptions.length; i++) {
+                if (OPTION_READ_CACHE.equals(typeAndOptions[i]))
+                    storageDefinition.readCache = true;
+                else if (OPTION_DEDUPLICATE.equals(typeAndOptions[i]) && storageDefinition.type == StorageDefinitionType.FOLDER)
+                    storageDefinition.deduplicate = true;
+                else if (typeAndOptions[i].startsWith(OPTION_SHARD)
+                        && (storageDefinition.type == StorageDefinitionType.FOLDER || storageDefinition.type == StorageDefinitionType.TEMPFOLDER))
+                    storageDefinition.decodeShardOption(typeAndOptions[i]);
+                else if (typeAndOptions[i].startsWith(OPTION_FSYNC) && storageDefinition.type == StorageDefinitionType.FOLDER)
+                    storageDefinition.decodeFsyncOption(typeAndOptions[i]);
+                else
+                    throw new Exception("Unknown option [" + typeAndOptions[i] + "] for [" + storageDefinition.type + "]");
+            }
 
 
             switch (storageDefinition.type) {
+                case JSON:
+                    // complement is optional: JSON:COMPACT compresses the content
+                    if (posDelimiter != -1)
+                        storageDefinition.complement = completeStorageDefinition.substring(posDelimiter + 1);
+                    break;
                 case FOLDER:
                     storageDefinition.complement = completeStorageDefinition.substring(posDelimiter + 1);
                     break;
@@ -139,6 +191,50 @@ public class StorageDefinition {
         }
     }
 
+    /**
+     * Decode the shard option: "SHARD" for the default layout, or "SHARD=<depth>x<width>"
+     *
+     * @param option the option
+     * @throws Exception if the option is not valid
+     */
+    private void decodeShardOption(String option) throws Exception {
+        shardDepth = StorageShards.DEFAULT_DEPTH;
+        shardWidth = StorageShards.DEFAULT_WIDTH;
+        if (!option.equals(OPTION_SHARD)) {
+            if (!option.startsWith(OPTION_SHARD + "="))
+                throw new Exception("Unknown option [" + option + "]");
+            String[] layout = option.substring(OPTION_SHARD.length() + 1).split("x");
+            if (layout.length != 2)
+                throw new Exception("Shard option must be " + OPTION_SHARD + "=<depth>x<width>, get [" + option + "]");
+            shardDepth = Integer.parseInt(layout[0]);
+            shardWidth = Integer.parseInt(layout[1]);
+        }
+        StorageShards.checkLayout(shardDepth, shardWidth);
+    }
+
+    /**
+     * Decode the fsync option: "FSYNC" or "FSYNC=FILE" for a sync per file, "FSYNC=GROUP" or "FSYNC=GROUP<ms>" for a
+     * group commit
+     *
+     * @param option the option
+     * @throws Exception if the option is not valid
+     */
+    private void decodeFsyncOption(String option) throws Exception {
+        String mode = option.equals(OPTION_FSYNC) ? FsyncMode.FILE.toString() : option.substring(OPTION_FSYNC.length());
+        if (!option.equals(OPTION_FSYNC)) {
+            if (!mode.startsWith("="))
+                throw new Exception("Unknown option [" + option + "]");
+            mode = mode.substring(1);
+        }
+        if (mode.startsWith(FsyncMode.GROUP.toString())) {
+            fsyncMode = FsyncMode.GROUP;
+            String waitMs = mode.substring(FsyncMode.GROUP.toString().length());
+            fsyncGroupWaitMs = waitMs.isEmpty() ? 0 : Integer.parseInt(waitMs);
+        } else {
+            fsyncMode = FsyncMode.valueOf(mode);
+        }
+    }
+
     /**
      * Encode the current storage definition to a String, so it is easily movable to any information
      *
@@ -146,6 +242,16 @@ public class StorageDefinition {
      */
     public String encodeToString() {
         String result = type.toString();
+        if (readCache)
+            result += OPTION_DELIMITATEUR + OPTION_READ_CACHE;
+        if (deduplicate)
+            result += OPTION_DELIMITATEUR + OPTION_DEDUPLICATE;
+        if (shardDepth > 0)
+            result += OPTION_DELIMITATEUR + OPTION_SHARD + "=" + shardDepth + "x" + shardWidth;
+        if (fsyncMode == FsyncMode.FILE)
+            result += OPTION_DELIMITATEUR + OPTION_FSYNC + "=" + FsyncMode.FILE;
+        if (fsyncMode == FsyncMode.GROUP)
+            result += OPTION_DELIMITATEUR + OPTION_FSYNC + "=" + FsyncMode.GROUP + (fsyncGroupWaitMs > 0 ? String.valueOf(fsyncGroupWaitMs) : "");
         if (complement != null) {
             result += STORAGE_DEFINITION_DELIMITATEUR + complement;
         } else if (complementInObject != null) {
@@ -164,6 +270,14 @@ public class StorageDefinition {
     public String getInformation() {
         StringBuilder info = new StringBuilder();
         info.append(type.toString());
+        if (readCache)
+            info.append(" (read cache)");
+        if (deduplicate)
+            info.append(" (deduplicate)");
+        if (shardDepth > 0)
+            info.append(" (shards " + shardDepth + "x" + shardWidth + ")");
+        if (fsyncMode != FsyncMode.NONE)
+            info.append(" (fsync " + fsyncMode + ")");
         switch (type) {
             case FOLDER:
                 info.append(": folder[");
@@ -198,6 +312,10 @@ public class StorageDefinition {
                 break;
 
             case JSON:
+                if (complement != null) {
+                    info.append(": ");
+                    info.append(complement);
+                }
                 break;
 
             case CAMUNDA:
@@ -212,4 +330,11 @@ public class StorageDefinition {
      */
     public enum StorageDefinitionType {JSON, TEMPFOLDER, FOLDER, CMIS, URL, CAMUNDA, GOOGLEDRIVE}
 
+    /**
+     * NONE: the file is renamed in place, the system writes it to the disk later.
+     * FILE: the content and the folder are forced to the disk at each write.
+     * GROUP: the content is forced at each write, the folder is forced once for concurrent writers
+     */
+    public enum FsyncMode {NONE, FILE, GROUP}
+
 }
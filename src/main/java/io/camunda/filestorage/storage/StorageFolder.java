@@ -4,10 +4,15 @@
 /*                                                                      */
 /*  Save a file variable in a folder. Folder is part of the storageDef  */
 /* syntax is FOLDER:<Path>                                              */
+/*  With FOLDER+DEDUP:<Path>, the same content is saved only one time   */
+/*  With FOLDER+SHARD:<Path>, files are spread in sub-folders           */
+/*  A file is written in a temporary file, then renamed atomically      */
+/*  The temporary files left by a crash are deleted at the first open   */
 /*  Attention, the folder must be accessible where the worker is running*/
 /* ******************************************************************** */
 package io.camunda.filestorage.storage;
 
+import io.camunda.filestorage.FileContent;
 import io.camunda.filestorage.FileRepoFactory;
 import io.camunda.filestorage.FileVariable;
 import io.camunda.filestorage.FileVariableReference;
@@ -15,17 +20,54 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.nio.file.FileSystems;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class StorageFolder extends Storage {
     Logger logger = LoggerFactory.getLogger(StorageFolder.class.getName());
 
+    /**
+     * A temporary file older than this was left by a crash: a write never lasts so long. A younger one may be written
+     * by another worker sharing the folder
+     */
+    public static final Duration STALE_TEMP_FILE_AGE = Duration.ofHours(1);
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String LINK_FILE_SUFFIX = ".lnk";
+
+    /**
+     * Folders already cleaned by this JVM: a storage is created again after an idle period
+     */
+    private static final Set<Path> cleanedFolders = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Blobs of the folder in deduplicate mode, else null
+     */
+    private final StorageFolderBlobs storageFolderBlobs;
+    private final StorageFolderSync storageFolderSync;
 
     public StorageFolder(StorageDefinition storageDefinition, FileRepoFactory fileRepoFactory) {
         super(storageDefinition, fileRepoFactory);
+        storageFolderSync = new StorageFolderSync(storageDefinition.fsyncMode, storageDefinition.fsyncGroupWaitMs);
+        storageFolderBlobs = storageDefinition.deduplicate ? new StorageFolderBlobs(extractPath(storageDefinition), storageFolderSync) : null;
+        Path folder = extractPath(storageDefinition).toAbsolutePath().normalize();
+        if (cleanedFolders.add(folder)) {
+            // the folder may be big: the storage does not wait for the scan
+            Thread.ofVirtual().name("filestorage-folder-cleaner").start(() -> deleteStaleTempFiles(STALE_TEMP_FILE_AGE));
+        }
     }
 
     /**
@@ -58,21 +100,72 @@ public class StorageFolder extends Storage {
     public FileVariableReference toStorage(FileVariable fileVariable, FileVariableReference fileVariableReference) throws Exception {
         Path tempPath = null;
         try {
-            String uniqId = fileVariableReference == null ? getFileRepoFactory().generateUniqId() : (String) fileVariableReference.content;
-            Path pathFolder = extractPath(getStorageDefinition());
-            Path file = Paths.get(pathFolder + FileSystems.getDefault().getSeparator() + fileVariable.getName() + uniqId);
-            Files.write(file, fileVariable.getValue());
+            Path file = getTargetPath(fileVariable, fileVariableReference);
             FileVariableReference fileVariableReferenceOutput = new FileVariableReference();
+            if (storageFolderBlobs != null) {
+                if (!StorageFolderBlobs.isSupported())
+                    throw new Exception("Deduplicate mode needs hard links and the unix file attributes, not supported on this file system");
+                fileVariableReferenceOutput.storageObjectId = storageFolderBlobs.write(fileVariable.getContent(), file);
+                // the file was a link to another content
+                String previousHash = fileVariableReference == null ? null : fileVariableReference.storageObjectId;
+                if (StorageFolderBlobs.isHash(previousHash) && !previousHash.equals(fileVariableReferenceOutput.storageObjectId))
+                    storageFolderBlobs.release(previousHash);
+            } else {
+                // stream the content to a temporary file: the content is never loaded in memory, and a reader never
+                // sees a half-written file
+                tempPath = file.resolveSibling("." + file.getFileName() + "_" + Thread.currentThread().threadId() + ".tmp");
+                try (FileChannel fileChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    if (fileVariable.getContent() != null)
+                        fileVariable.getContent().transferTo(fileChannel);
+                    if (storageFolderSync.isForceContent())
+                        fileChannel.force(true);
+                }
+                StorageFolderSync.moveAtomic(tempPath, file);
+                tempPath = null;
+                storageFolderSync.commit(file.getParent());
+            }
             fileVariableReferenceOutput.storageDefinition = getStorageDefinition().encodeToString();
-            fileVariableReferenceOutput.content = file.getFileName().toString();
+            fileVariableReferenceOutput.content = StorageShards.toReferenceContent(extractPath(getStorageDefinition()), file);
             logger.debug("toStorage[{}]",file.toAbsolutePath().toString());
             return fileVariableReferenceOutput;
         } catch (Exception e) {
             logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageFolder.class) + "Exception " + e + " During write fileVariable on tempFolder[" + tempPath + "]");
+            if (tempPath != null)
+                Files.deleteIfExists(tempPath);
             throw e;
         }
     }
 
+    /**
+     * Move a local file in the folder. The file is renamed atomically when the source is on the same file system
+     *
+     * @param fileVariable file to save
+     * @param sourcePath   local file which contains the content
+     * @return the reference, or null if the file can't be moved atomically
+     * @throws Exception in case of error
+     */
+    @Override
+    public FileVariableReference moveToStorage(FileVariable fileVariable, Path sourcePath) throws Exception {
+        // the content must be hashed: the caller will copy it
+        if (storageFolderBlobs != null)
+            return null;
+        Path file = getTargetPath(fileVariable, null);
+        // the source may not be on the disk yet
+        storageFolderSync.forceContent(sourcePath);
+        try {
+            Files.move(sourcePath, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // not the same file system: the caller will copy the content
+            return null;
+        }
+        storageFolderSync.commit(file.getParent());
+        FileVariableReference fileVariableReferenceOutput = new FileVariableReference();
+        fileVariableReferenceOutput.storageDefinition = getStorageDefinition().encodeToString();
+        fileVariableReferenceOutput.content = StorageShards.toReferenceContent(extractPath(getStorageDefinition()), file);
+        logger.debug("moveToStorage[{}] from [{}]", file.toAbsolutePath(), sourcePath.toAbsolutePath());
+        return fileVariableReferenceOutput;
+    }
+
     /**
      * read the fileVariable
      *
@@ -87,10 +180,19 @@ public class StorageFolder extends Storage {
             pathFolder = extractPath(getStorageDefinition());
 
             FileVariable fileVariable = new FileVariable(getStorageDefinition());
-            fileVariable.setName(fileName);
+            fileVariable.setName(StorageShards.getFileName(fileName));
             fileVariable.setMimeType(FileVariable.getMimeTypeFromName(fileName));
-            Path sourcePath = Paths.get(pathFolder + FileSystems.getDefault().getSeparator() + fileName);
-            fileVariable.setValue(Files.readAllBytes(sourcePath));
+            // a flat reference is a file name, a sharded reference is a path relative to the folder
+            Path sourcePath = StorageShards.fromReferenceContent(pathFolder, fileName);
+            if (!Files.exists(sourcePath))
+                throw new NoSuchFileException(sourcePath.toString());
+            // the file is opened only when the content is read
+            FileContent fileContent = FileContent.fromPath(sourcePath);
+            if (storageFolderBlobs != null) {
+                // the path is not given: a file moved out of the folder would keep its blob forever
+                fileContent = FileContent.fromRangeSupplier(fileContent::openStream, fileContent.getLength());
+            }
+            fileVariable.setContent(fileContent);
             logger.debug("FromStorage[{}]",sourcePath.toAbsolutePath().toString());
             return fileVariable;
         } catch (Exception e) {
@@ -104,17 +206,107 @@ public class StorageFolder extends Storage {
      *
      * @param fileVariableReference name of the file in the temporary directory
      * @return true if the operation was successful
+     * @throws IOException if the reference is outside the folder
      */
-    public boolean purgeStorage(FileVariableReference fileVariableReference) {
+    public boolean purgeStorage(FileVariableReference fileVariableReference) throws IOException {
         Path pathFolder = extractPath(getStorageDefinition());
         String fileName = fileVariableReference.content.toString();
 
-        File file = new File(pathFolder + FileSystems.getDefault().getSeparator() + fileName);
-        if (file.exists())
-            return file.delete();
+        File file = StorageShards.fromReferenceContent(pathFolder, fileName).toFile();
+        if (file.exists() && !file.delete())
+            return false;
+        if (storageFolderBlobs != null && StorageFolderBlobs.isHash(fileVariableReference.storageObjectId)) {
+            try {
+                storageFolderBlobs.release(fileVariableReference.storageObjectId);
+            } catch (IOException e) {
+                logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageFolder.class) + "Exception " + e + " During release blob[" + fileVariableReference.storageObjectId + "]");
+                return false;
+            }
+        }
         return true;
     }
 
+    /**
+     * Delete the temporary files left by a crash during a write: the .tmp files of the folder and its shards, the
+     * uploads and the links of the blob folder
+     *
+     * @param age a temporary file modified since this duration is kept: it may be written
+     * @return number of files deleted
+     */
+    public int deleteStaleTempFiles(Duration age) {
+        Path folder = extractPath(getStorageDefinition());
+        if (!Files.isDirectory(folder))
+            return 0;
+        long modifiedBefore = System.currentTimeMillis() - age.toMillis();
+        AtomicInteger deleted = new AtomicInteger();
+        try {
+            // the folder, the shard levels, and the blob folder
+            Files.walkFileTree(folder, Set.of(), StorageShards.MAX_HASH_CHARACTERS + 1, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    String name = file.getFileName().toString();
+                    if (attributes.isRegularFile()
+                            && ((name.startsWith(".") && name.endsWith(TEMP_FILE_SUFFIX)) || isBlobTempFile(file, name))
+                            && attributes.lastModifiedTime().toMillis() < modifiedBefore) {
+                        try {
+                            if (Files.deleteIfExists(file))
+                                deleted.incrementAndGet();
+                        } catch (IOException e) {
+                            logger.debug("StorageFolder: can't delete the temporary file [{}] {}", file, e.toString());
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // deleted in the meantime
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageFolder.class) + "Exception " + e + " During cleaning of the temporary files in folder[" + folder + "]");
+        }
+        if (deleted.get() > 0)
+            logger.info("StorageFolder: {} temporary files left by a crash deleted in [{}]", deleted.get(), folder);
+        return deleted.get();
+    }
+
+    private static boolean isBlobTempFile(Path file, String name) {
+        return file.getParent() != null && file.getParent().getFileName() != null
+                && StorageFolderBlobs.BLOB_FOLDER.equals(file.getParent().getFileName().toString())
+                && (name.endsWith(TEMP_FILE_SUFFIX) || name.endsWith(LINK_FILE_SUFFIX));
+    }
+
+    /**
+     * @return the blobs in deduplicate mode, else null
+     */
+    public StorageFolderBlobs getStorageFolderBlobs() {
+        return storageFolderBlobs;
+    }
+
+    public StorageFolderSync getStorageFolderSync() {
+        return storageFolderSync;
+    }
+
+    /**
+     * Return the path of the file in the folder
+     *
+     * @param fileVariable          fileVariable to save
+     * @param fileVariableReference file variable to update (may be null)
+     * @return the path
+     * @throws IOException if the shard folder can't be created
+     */
+    private Path getTargetPath(FileVariable fileVariable, FileVariableReference fileVariableReference) throws IOException {
+        Path pathFolder = extractPath(getStorageDefinition());
+        // the content of the reference is the path of the file
+        if (fileVariableReference != null)
+            return StorageShards.fromReferenceContent(pathFolder, (String) fileVariableReference.content);
+        String fileName = fileVariable.getName() + getFileRepoFactory().generateUniqId();
+        StorageDefinition storageDefinition = getStorageDefinition();
+        return StorageShards.getShardFolder(pathFolder, fileName, storageDefinition.shardDepth, storageDefinition.shardWidth).resolve(fileName);
+    }
+
     /**
      * Extract the path from the storage definition
      * convention is FOLDER:<path>
@@ -0,0 +1,208 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageFolderBlobs                                                  */
+/*                                                                      */
+/*  Content-addressed blobs of a FOLDER storage in deduplicate mode.    */
+/*  The content is hashed (SHA-256) while it is written. Each unique    */
+/*  content is kept once, in <folder>/.filestorage-blobs/<hash>, and    */
+/*  each file of the folder is a hard link to its blob. The reference   */
+/*  count of a blob is the link count of the file system: the blob is   */
+/*  deleted when its last file is purged.                               */
+/* ******************************************************************** */
+package io.camunda.filestorage.storage;
+
+import io.camunda.filestorage.FileContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StorageFolderBlobs {
+    Logger logger = LoggerFactory.getLogger(StorageFolderBlobs.class.getName());
+
+    public static final String BLOB_FOLDER = ".filestorage-blobs";
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final Path blobFolder;
+    private final StorageFolderSync storageFolderSync;
+
+    private final AtomicLong blobCreated = new AtomicLong();
+    private final AtomicLong blobReused = new AtomicLong();
+    private final AtomicLong blobDeleted = new AtomicLong();
+
+    public StorageFolderBlobs(Path folder, StorageFolderSync storageFolderSync) {
+        this.blobFolder = folder.resolve(BLOB_FOLDER);
+        this.storageFolderSync = storageFolderSync;
+    }
+
+    /**
+     * Check the file system can hold the blobs: hard links and link count are needed
+     *
+     * @return true if the file system is supported
+     */
+    public static boolean isSupported() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    }
+
+    /**
+     * Write the content in the file. When the same content is already in a blob, the file is a link to this blob
+     *
+     * @param content content to write, may be null for an empty file
+     * @param file    file to create or replace
+     * @return the hash of the content, which identifies the blob
+     * @throws Exception in case of error
+     */
+    public String write(FileContent content, Path file) throws Exception {
+        Files.createDirectories(blobFolder);
+        // not a createTempFile(): the file becomes the blob, and it must keep the default permissions
+        Path uploadPath = blobFolder.resolve("upload_" + Thread.currentThread().threadId() + "_" + System.nanoTime() + ".tmp");
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            // hash the content while it is written: the content is read only once
+            try (FileChannel fileChannel = FileChannel.open(uploadPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                if (content != null)
+                    content.transferTo(new DigestChannel(fileChannel, digest));
+                if (storageFolderSync.isForceContent())
+                    fileChannel.force(true);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path blobPath = getBlobPath(hash);
+            while (true) {
+                try {
+                    Files.createLink(blobPath, uploadPath);
+                    blobCreated.incrementAndGet();
+                } catch (FileAlreadyExistsException e) {
+                    // same content already saved: the upload is dropped
+                    blobReused.incrementAndGet();
+                }
+                try {
+                    linkFile(file, blobPath);
+                    // only the link of the file must be durable: a blob lost in a crash is created again
+                    storageFolderSync.commit(file.getParent());
+                    return hash;
+                } catch (NoSuchFileException e) {
+                    // the blob was deleted by a purge in the meantime: create it again
+                    logger.debug("StorageFolderBlobs: blob [{}] deleted during the write, retry", hash);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(uploadPath);
+        }
+    }
+
+    /**
+     * The file linked to the blob was deleted: delete the blob if no other file is linked to it.
+     * A file linked to the blob at the same time keeps the content: only the deduplication is lost for it
+     *
+     * @param hash hash of the blob
+     * @throws IOException in case of error
+     */
+    public void release(String hash) throws IOException {
+        Path blobPath = getBlobPath(hash);
+        try {
+            int linkCount = (Integer) Files.getAttribute(blobPath, "unix:nlink");
+            if (linkCount <= 1 && Files.deleteIfExists(blobPath))
+                blobDeleted.incrementAndGet();
+        } catch (NoSuchFileException e) {
+            // already deleted
+        }
+    }
+
+    /**
+     * Link the file to the blob. An existing file is replaced atomically
+     */
+    private void linkFile(Path file, Path blobPath) throws IOException {
+        try {
+            Files.createLink(file, blobPath);
+        } catch (FileAlreadyExistsException e) {
+            Path linkPath = blobFolder.resolve(file.getFileName() + "_" + Thread.currentThread().threadId() + ".lnk");
+            Files.deleteIfExists(linkPath);
+            Files.createLink(linkPath, blobPath);
+            Files.move(linkPath, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // the rename does nothing when the file is already a link to the blob
+            Files.deleteIfExists(linkPath);
+        }
+    }
+
+    private Path getBlobPath(String hash) {
+        return blobFolder.resolve(hash);
+    }
+
+    /**
+     * Check the hash is a blob name, to not access a file outside the blob folder
+     *
+     * @param hash hash from a reference
+     * @return true if this is a valid hash
+     */
+    public static boolean isHash(String hash) {
+        if (hash == null || hash.length() != 64)
+            return false;
+        for (int i = 0; i < hash.length(); i++) {
+            if (Character.digit(hash.charAt(i), 16) == -1)
+                return false;
+        }
+        return true;
+    }
+
+    public long getBlobCreated() {
+        return blobCreated.get();
+    }
+
+    public long getBlobReused() {
+        return blobReused.get();
+    }
+
+    public long getBlobDeleted() {
+        return blobDeleted.get();
+    }
+
+    @Override
+    public String toString() {
+        return "blobs[" + blobFolder + "] created[" + blobCreated.get() + "] reused[" + blobReused.get() + "] deleted[" + blobDeleted.get() + "]";
+    }
+
+    /**
+     * Channel which hashes the bytes written
+     */
+    private static class DigestChannel implements WritableByteChannel {
+        private final WritableByteChannel channel;
+        private final MessageDigest digest;
+
+        DigestChannel(WritableByteChannel channel, MessageDigest digest) {
+            this.channel = channel;
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            ByteBuffer written = source.duplicate();
+            int count = channel.write(source);
+            written.limit(written.position() + count);
+            digest.update(written);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageFolderSync                                                   */
+/*                                                                      */
+/*  Durability of the FOLDER storage. A file is written in a temporary  */
+/*  file, then renamed: a reader never sees a half-written file.        */
+/*  With FSYNC, the content is forced to the disk before the rename,    */
+/*  and the folder is forced after, so the rename survives a crash.     */
+/*  In GROUP mode, concurrent writers share the folder sync: the first  */
+/*  writer syncs the folders of all the writers arrived in the          */
+/*  meantime (group commit).                                            */
+/* ******************************************************************** */
+package io.camunda.filestorage.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StorageFolderSync {
+
+    private final StorageDefinition.FsyncMode fsyncMode;
+    private final long groupWaitMs;
+
+    /**
+     * Folders to sync for the writers arrived since the last group commit
+     */
+    private Batch openBatch = new Batch();
+    private boolean leaderRunning = false;
+
+    private final AtomicLong commitCount = new AtomicLong();
+    private final AtomicLong folderSyncCount = new AtomicLong();
+
+    public StorageFolderSync(StorageDefinition.FsyncMode fsyncMode, long groupWaitMs) {
+        this.fsyncMode = fsyncMode == null ? StorageDefinition.FsyncMode.NONE : fsyncMode;
+        this.groupWaitMs = groupWaitMs;
+    }
+
+    /**
+     * Rename the file atomically. An existing target is replaced
+     *
+     * @param source temporary file
+     * @param target final file
+     * @throws IOException in case of error
+     */
+    public static void moveAtomic(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return true if the content must be forced to the disk before the rename
+     */
+    public boolean isForceContent() {
+        return fsyncMode != StorageDefinition.FsyncMode.NONE;
+    }
+
+    /**
+     * Force the content of a file to the disk, when the mode asks it
+     *
+     * @param file the file
+     * @throws IOException in case of error
+     */
+    public void forceContent(Path file) throws IOException {
+        if (!isForceContent())
+            return;
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            fileChannel.force(true);
+        }
+    }
+
+    /**
+     * The file is renamed in the folder: make the rename durable, according to the mode.
+     * In GROUP mode, the call returns when a sync of the folder started after the call is done
+     *
+     * @param folder folder of the renamed file
+     * @throws IOException if the folder can't be synced
+     */
+    public void commit(Path folder) throws IOException {
+        switch (fsyncMode) {
+            case NONE:
+                return;
+            case FILE:
+                commitCount.incrementAndGet();
+                syncFolder(folder);
+                return;
+            case GROUP:
+                commitCount.incrementAndGet();
+                groupCommit(folder);
+        }
+    }
+
+    private void groupCommit(Path folder) throws IOException {
+        Batch batch;
+        boolean leader = false;
+        synchronized (this) {
+            batch = openBatch;
+            batch.folders.add(folder);
+            while (!batch.done && !leader) {
+                if (leaderRunning)
+                    waitBatch();
+                else
+                    leaderRunning = leader = true;
+            }
+        }
+        if (leader)
+            lead();
+        if (batch.error != null)
+            throw new IOException("Group commit failed on " + batch.folders + ": " + batch.error.getMessage(), batch.error);
+    }
+
+    /**
+     * This writer syncs the folders for all writers arrived until now
+     */
+    private void lead() {
+        Batch batch = null;
+        try {
+            if (groupWaitMs > 0) {
+                // let other writers join the batch
+                Thread.sleep(groupWaitMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            synchronized (this) {
+                batch = openBatch;
+                openBatch = new Batch();
+            }
+            for (Path folder : batch.folders) {
+                syncFolder(folder);
+            }
+        } catch (IOException e) {
+            batch.error = e;
+        } finally {
+            synchronized (this) {
+                if (batch != null)
+                    batch.done = true;
+                leaderRunning = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private void waitBatch() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the group commit");
+        }
+    }
+
+    /**
+     * Force the folder to the disk: the entries created or renamed in the folder are durable.
+     * Windows can't open a folder, and its file system does not need it
+     *
+     * @param folder folder to sync
+     * @throws IOException in case of error
+     */
+    private void syncFolder(Path folder) throws IOException {
+        if (File.separatorChar == '\\')
+            return;
+        folderSyncCount.incrementAndGet();
+        try (FileChannel folderChannel = FileChannel.open(folder, StandardOpenOption.READ)) {
+            folderChannel.force(true);
+        }
+    }
+
+    public StorageDefinition.FsyncMode getFsyncMode() {
+        return fsyncMode;
+    }
+
+    /**
+     * @return number of writes committed
+     */
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    /**
+     * @return number of folder syncs. In GROUP mode, it is lower than the number of commits
+     */
+    public long getFolderSyncCount() {
+        return folderSyncCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "fsync[" + fsyncMode + "] commits[" + commitCount.get() + "] folderSyncs[" + folderSyncCount.get() + "]";
+    }
+
+    private static class Batch {
+        private final Set<Path> folders = new HashSet<>();
+        private boolean done = false;
+        private IOException error = null;
+    }
+}
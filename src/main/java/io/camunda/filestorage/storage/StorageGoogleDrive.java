@@ -1,26 +1,37 @@
 package io.camunda.filestorage.storage;
 
-import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.ByteArrayContent;
-import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.client.http.InputStreamContent;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.model.File;
+import io.camunda.filestorage.BatchResult;
+import io.camunda.filestorage.FileContent;
 import io.camunda.filestorage.FileRepoFactory;
 import io.camunda.filestorage.FileVariable;
 import io.camunda.filestorage.FileVariableReference;
+import io.camunda.filestorage.googledrive.GoogleDriveFactoryConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 public class StorageGoogleDrive extends Storage {
-    Logger logger = LoggerFactory.getLogger(StorageCMIS.class.getName());
+    Logger logger = LoggerFactory.getLogger(StorageGoogleDrive.class.getName());
 
-    private final String APPLICATION_NAME = "FileStorage";
+    /**
+     * Google Drive accepts at most 100 calls in a batch request
+     */
+    public static final int MAX_BATCH_SIZE = 100;
 
     public StorageGoogleDrive(StorageDefinition storageDefinition, FileRepoFactory fileRepoFactory) {
         super(storageDefinition, fileRepoFactory);
@@ -46,14 +57,23 @@ public class StorageGoogleDrive extends Storage {
         File fileMetadata = new File();
         fileMetadata.setName(fileVariable.getName());
 
-        // File content
-        java.io.File filePath = new java.io.File("local-example.txt");
-        ByteArrayContent content = new ByteArrayContent(fileVariable.getMimeType(), fileVariable.getValue());
-
-        File uploadedFile = driveService.files().create(fileMetadata, content)
-                .setFields("id, name")
-                .execute();
-
+        // File content: streamed from the variable, and sent by chunks. A failed chunk is sent again, not the complete file
+        FileContent content = fileVariable.getContent();
+        File uploadedFile;
+        try (InputStream inputStream = content == null ? InputStream.nullInputStream() : content.openStream()) {
+            InputStreamContent mediaContent = new InputStreamContent(fileVariable.getMimeType(), inputStream);
+            long length = content == null ? 0 : content.getLength();
+            if (length != FileContent.UNKNOWN_LENGTH)
+                mediaContent.setLength(length);
+
+            Drive.Files.Create create = driveService.files().create(fileMetadata, mediaContent)
+                    .setFields("id, name");
+            MediaHttpUploader uploader = create.getMediaHttpUploader();
+            uploader.setChunkSize(GoogleDriveFactoryConnection.getInstance().getUploadChunkSize());
+            // a small file is sent in one request: a resumable session costs one more round trip
+            uploader.setDirectUploadEnabled(length != FileContent.UNKNOWN_LENGTH && length < MediaHttpUploader.MINIMUM_CHUNK_SIZE);
+            uploadedFile = create.execute();
+        }
 
         FileVariableReference fileVariableReferenceOutput = new FileVariableReference();
         fileVariableReferenceOutput.storageDefinition = getStorageDefinition().encodeToString();
@@ -72,42 +92,108 @@ public class StorageGoogleDrive extends Storage {
     public FileVariable fromStorage(FileVariableReference fileVariableReference) throws Exception {
         try {
             Drive driveService = connect();
+            String fileId = fileVariableReference.content.toString();
 
-            // Download file content
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            File fileMetadata = driveService.files().get(fileVariableReference.content.toString())
-                    .setFields("name, mimeType")
+            // only the metadata is read here. The content is downloaded when the caller opens it
+            File fileMetadata = driveService.files().get(fileId)
+                    .setFields("name, mimeType, size")
                     .execute();
 
-            driveService.files().get(fileVariableReference.content.toString()).executeMediaAndDownloadTo(outputStream);
-
-
             FileVariable fileVariable = new FileVariable(getStorageDefinition());
             fileVariable.setName(fileMetadata.getName());
             fileVariable.setMimeType(fileMetadata.getMimeType());
-            fileVariable.setValue(outputStream.toByteArray());
+            fileVariable.setContent(FileContent.fromRangeSupplier((offset, length) -> openContent(driveService, fileId, offset, length),
+                    fileMetadata.getSize() == null ? FileContent.UNKNOWN_LENGTH : fileMetadata.getSize()));
             return fileVariable;
         } catch (Exception e) {
-            logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageCMIS.class) + ": exception " + e + " During read file[" + fileVariableReference.content.toString() + "]");
+            logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageGoogleDrive.class) + ": exception " + e + " During read file[" + fileVariableReference.content.toString() + "]");
             throw e;
         }
     }
 
+    /**
+     * Open the content of a file, or a range of the content
+     *
+     * @param driveService Drive client
+     * @param fileId       id of the file
+     * @param offset       first byte to read
+     * @param length       number of bytes to read, FileContent.UNKNOWN_LENGTH to read until the end
+     * @return the stream on the content
+     * @throws IOException in case of error
+     */
+    private InputStream openContent(Drive driveService, String fileId, long offset, long length) throws IOException {
+        if (length == 0)
+            return InputStream.nullInputStream();
+        Drive.Files.Get get = driveService.files().get(fileId);
+        if (offset > 0 || length >= 0)
+            get.getRequestHeaders().setRange("bytes=" + offset + "-" + (length >= 0 ? String.valueOf(offset + length - 1) : ""));
+        return get.executeMediaAsInputStream();
+    }
+
 
     /**
-     * Remove a file in the directory
-     * Remove a file in the directory
+     * Delete the file in Google Drive
      *
-     * @param fileVariableReference name of the file in the temporary directory
-     * @return true if the operation was successful
+     * @param fileVariableReference reference to the file
+     * @return true if the file was deleted, false if it does not exist
      */
     public boolean purgeStorage(FileVariableReference fileVariableReference) throws Exception {
-        return false;
+        Drive driveService = connect();
+        try {
+            driveService.files().delete(fileVariableReference.content.toString()).execute();
+            return true;
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND)
+                return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Delete a list of files via Drive batch requests: one HTTP exchange per MAX_BATCH_SIZE files
+     *
+     * @param fileVariableReferences references to purge
+     * @return one result per reference, in the same order
+     */
+    @Override
+    public List<BatchResult<Boolean>> purgeStorage(List<FileVariableReference> fileVariableReferences) throws Exception {
+        Drive driveService = connect();
+        List<BatchResult<Boolean>> results = new ArrayList<>(Collections.nCopies(fileVariableReferences.size(), null));
+        for (int start = 0; start < fileVariableReferences.size(); start += MAX_BATCH_SIZE) {
+            int end = Math.min(start + MAX_BATCH_SIZE, fileVariableReferences.size());
+            BatchRequest batch = driveService.batch();
+            for (int i = start; i < end; i++) {
+                int index = i;
+                driveService.files().delete(fileVariableReferences.get(i).content.toString()).queue(batch, new JsonBatchCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void unused, HttpHeaders responseHeaders) {
+                        results.set(index, BatchResult.success(true));
+                    }
+
+                    @Override
+                    public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                        if (error.getCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND)
+                            results.set(index, BatchResult.success(false));
+                        else
+                            results.set(index, BatchResult.failure(new IOException("Can't delete file [" + fileVariableReferences.get(index).content + "]: " + error.getCode() + " " + error.getMessage())));
+                    }
+                });
+            }
+            try {
+                batch.execute();
+            } catch (IOException e) {
+                logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageGoogleDrive.class) + ": exception " + e + " During batch delete");
+                for (int i = start; i < end; i++) {
+                    if (results.get(i) == null)
+                        results.set(i, BatchResult.failure(e));
+                }
+            }
+        }
+        return results;
     }
 
     private Drive connect() throws Exception {
         try {
-            Long beginExecution = System.currentTimeMillis();
             /* JsonKey is something like
               {
                "type": "service_account",
@@ -123,27 +209,12 @@ public class StorageGoogleDrive extends Storage {
                     "  "universe_domain": "googleapis.com"
                 }
              */
-
-            logger.debug("Start connecting to Google Drive");
-
-            // Convert the JSON string to an InputStream
             if (getStorageDefinition().fileStorageComplement == null)
                 throw new Exception("Incomplete configuration");
             String jsonKey = getStorageDefinition().fileStorageComplement.toString();
-            ByteArrayInputStream credentialStream = new ByteArrayInputStream(jsonKey.getBytes(StandardCharsets.UTF_8));
-
-            // Load credentials
-            GoogleCredential credential = GoogleCredential.fromStream(credentialStream)
-                    .createScoped(Collections.singleton("https://www.googleapis.com/auth/drive"));
-
-            // Build the Drive service
-            Drive drive = new Drive.Builder(
-                    GoogleNetHttpTransport.newTrustedTransport(),
-                    JacksonFactory.getDefaultInstance(),
-                    credential
-            ).setApplicationName(APPLICATION_NAME).build();
-            logger.debug("Connected to Google drive in {} ms", System.currentTimeMillis() - beginExecution);
-            return drive;
+
+            // the client is shared for the same key: the token and the connections are reused
+            return GoogleDriveFactoryConnection.getInstance().getDrive(jsonKey);
 
         } catch (Exception e) {
             logger.error("Can't connect to Google Driver ", e);
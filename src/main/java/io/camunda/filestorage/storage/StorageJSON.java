@@ -3,19 +3,25 @@
 /*  FileVariableJSON                                                    */
 /*                                                                      */
 /*  Save a file variable in JSON, in the Camunda Engine                 */
-/*  File are encoded in JSON                                            */
+/*  File are encoded in JSON, see StorageJSONCodec                      */
+/*  JSON:COMPACT compresses the content before the encoding             */
 /* ******************************************************************** */
 package io.camunda.filestorage.storage;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.camunda.filestorage.FileRepoFactory;
 import io.camunda.filestorage.FileVariable;
 import io.camunda.filestorage.FileVariableReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+
 public class StorageJSON extends Storage {
+    /**
+     * Complement of the storage definition to compress the content
+     */
+    public static final String COMPLEMENT_COMPACT = "COMPACT";
+
     Logger logger = LoggerFactory.getLogger(StorageJSON.class.getName());
 
 
@@ -28,6 +34,23 @@ public class StorageJSON extends Storage {
         return StorageDefinition.StorageDefinitionType.JSON.name();
     }
 
+    /**
+     * @param compact if true, the content is compressed when it saves space
+     * @return the connection string
+     */
+    public static String getStorageDefinitionString(boolean compact) {
+        if (!compact)
+            return getStorageDefinitionString();
+        return StorageDefinition.StorageDefinitionType.JSON + StorageDefinition.STORAGE_DEFINITION_DELIMITATEUR + COMPLEMENT_COMPACT;
+    }
+
+    /**
+     * @return true if the storage compresses the content
+     */
+    public boolean isCompact() {
+        return COMPLEMENT_COMPACT.equalsIgnoreCase(getStorageDefinition().complement);
+    }
+
     @Override
     public String getName() {
         return "JSON";
@@ -44,9 +67,9 @@ public class StorageJSON extends Storage {
         try {
             FileVariableReference fileVariableReference = new FileVariableReference();
             fileVariableReference.storageDefinition = getStorageDefinition().encodeToString();
-            fileVariableReference.content = new ObjectMapper().writeValueAsString(fileVariable);
+            fileVariableReference.content = StorageJSONCodec.encode(fileVariable, isCompact());
             return fileVariableReference;
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageJSON.class) + "exception " + e + " During serialize fileVariable");
             throw e;
         }
@@ -57,14 +80,14 @@ public class StorageJSON extends Storage {
      *
      * @param fileVariableReference FileVariable in JSON format
      * @return the fileVariable object
-     * @throws JsonProcessingException error during parsing the JSON information
+     * @throws IOException error during parsing the JSON information
      */
     public FileVariable fromStorage(FileVariableReference fileVariableReference) throws Exception {
         try {
-            FileVariable fileVariable = new ObjectMapper().readValue((String) fileVariableReference.content, FileVariable.class);
+            FileVariable fileVariable = StorageJSONCodec.decode((String) fileVariableReference.content);
             fileVariable.setStorageDefinition(getStorageDefinition());
             return fileVariable;
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             logger.error(getFileRepoFactory().getLoggerHeaderMessage(StorageJSON.class) + "Exception " + e + " During unserialize fileVariable");
             throw e;
         }
@@ -0,0 +1,253 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageJSONCodec                                                    */
+/*                                                                      */
+/*  Encode / decode a FileVariable in JSON for the JSON storage.        */
+/*  The mapper, reader and writer are shared. The content is streamed   */
+/*  in base64 from the FileContent, without an intermediate byte[]      */
+/*  In compact mode, the content is streamed to the deflater, and the   */
+/*  codec is saved in the JSON. Only the compressed value is in memory  */
+/* ******************************************************************** */
+package io.camunda.filestorage.storage;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.FileVariable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class StorageJSONCodec {
+
+    public static final String FIELD_NAME = "name";
+    public static final String FIELD_ORIGINAL_NAME = "originalName";
+    public static final String FIELD_MIME_TYPE = "mimeType";
+    public static final String FIELD_STORAGE_DEFINITION = "storageDefinition";
+    public static final String FIELD_VALUE = "value";
+    public static final String FIELD_CODEC = "codec";
+
+    /**
+     * Content types already compressed: the compact mode does not try to compress them
+     */
+    private static final Set<String> COMPRESSED_MIME_TYPES = Set.of(
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+            "application/x-rar-compressed", "application/vnd.rar", "application/x-bzip2", "application/x-xz",
+            "application/zstd", "application/java-archive", "application/epub+zip",
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/avif", "image/heic");
+    private static final List<String> COMPRESSED_MIME_PREFIXES = List.of(
+            "video/", "audio/",
+            "application/vnd.openxmlformats-officedocument.", "application/vnd.oasis.opendocument.");
+
+    /**
+     * Upper bound of the buffers allocated from the content length: a larger buffer grows on demand
+     */
+    private static final int MAX_INITIAL_BUFFER = 16 * 1024 * 1024;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final JsonFactory jsonFactory = objectMapper.getFactory();
+    private static final ObjectWriter storageDefinitionWriter = objectMapper.writerFor(StorageDefinition.class);
+    private static final ObjectReader storageDefinitionReader = objectMapper.readerFor(StorageDefinition.class);
+
+    private StorageJSONCodec() {
+    }
+
+    /**
+     * Encode the fileVariable in JSON
+     *
+     * @param fileVariable fileVariable to encode
+     * @return the JSON
+     * @throws IOException in case of error
+     */
+    public static String encode(FileVariable fileVariable) throws IOException {
+        return encode(fileVariable, false);
+    }
+
+    /**
+     * Encode the fileVariable in JSON
+     *
+     * @param fileVariable fileVariable to encode
+     * @param compact      if true, the content is compressed when it saves space. See encode(FileVariable, Writer, boolean)
+     * @return the JSON
+     * @throws IOException in case of error
+     */
+    public static String encode(FileVariable fileVariable, boolean compact) throws IOException {
+        long length = fileVariable.getContent() == null ? 0 : fileVariable.getContent().getLength();
+        // base64 is 4 characters per 3 bytes
+        StringWriter writer = new StringWriter(length < 0 ? 1024 : (int) Math.min(length / 3 * 4 + 512, MAX_INITIAL_BUFFER));
+        encode(fileVariable, writer, compact);
+        return writer.toString();
+    }
+
+    /**
+     * Encode the fileVariable in JSON, in a writer
+     *
+     * @param fileVariable fileVariable to encode
+     * @param writer       writer to send the JSON
+     * @param compact      if true, the content is compressed when it saves space. The compressed value is kept in
+     *                     memory until it is written (it is smaller than the content). A content which can be read
+     *                     only once is loaded in memory, because it is read again if the compression does not save space
+     * @throws IOException in case of error
+     */
+    public static void encode(FileVariable fileVariable, Writer writer, boolean compact) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField(FIELD_NAME, fileVariable.getName());
+            generator.writeStringField(FIELD_ORIGINAL_NAME, fileVariable.getOriginalName());
+            generator.writeStringField(FIELD_MIME_TYPE, fileVariable.getMimeType());
+            generator.writeFieldName(FIELD_STORAGE_DEFINITION);
+            storageDefinitionWriter.writeValue(generator, fileVariable.getStorageDefinition());
+            byte[] compressedValue = compact ? compress(fileVariable) : null;
+            if (compressedValue != null) {
+                generator.writeStringField(FIELD_CODEC, ValueCodec.DEFLATE.name());
+                generator.writeBinaryField(FIELD_VALUE, compressedValue);
+            } else {
+                generator.writeFieldName(FIELD_VALUE);
+                writeContent(generator, fileVariable.getContent());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Decode a JSON to a fileVariable
+     *
+     * @param json the JSON produced by encode()
+     * @return the fileVariable
+     * @throws IOException in case of error
+     */
+    public static FileVariable decode(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("JSON FileVariable must be an object");
+            FileVariable fileVariable = new FileVariable();
+            ValueCodec codec = ValueCodec.NONE;
+            byte[] value = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL)
+                    continue;
+                switch (fieldName) {
+                    case FIELD_NAME -> fileVariable.setName(parser.getText());
+                    case FIELD_ORIGINAL_NAME -> fileVariable.setOriginalName(parser.getText());
+                    case FIELD_MIME_TYPE -> fileVariable.setMimeType(parser.getText());
+                    case FIELD_STORAGE_DEFINITION ->
+                            fileVariable.setStorageDefinition(storageDefinitionReader.readValue(parser));
+                    case FIELD_VALUE -> value = parser.getBinaryValue();
+                    case FIELD_CODEC -> codec = ValueCodec.valueOf(parser.getText());
+                    default -> parser.skipChildren();
+                }
+            }
+            if (value != null)
+                fileVariable.setValue(codec == ValueCodec.DEFLATE ? decompress(value) : value);
+            return fileVariable;
+        }
+    }
+
+    /**
+     * Check if the content type is already compressed
+     *
+     * @param mimeType content type, may be null
+     * @return true if the content type is already compressed
+     */
+    public static boolean isCompressedMimeType(String mimeType) {
+        if (mimeType == null)
+            return false;
+        String mimeTypeLower = mimeType.toLowerCase(Locale.ROOT);
+        int parameters = mimeTypeLower.indexOf(';');
+        if (parameters != -1)
+            mimeTypeLower = mimeTypeLower.substring(0, parameters).trim();
+        if (COMPRESSED_MIME_TYPES.contains(mimeTypeLower))
+            return true;
+        for (String prefix : COMPRESSED_MIME_PREFIXES) {
+            if (mimeTypeLower.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compress the content. The content is streamed to the deflater, and the compression stops as soon as the
+     * compressed value is not smaller than the content
+     *
+     * @param fileVariable fileVariable to compress
+     * @return the compressed value, or null if the compression does not save space
+     * @throws IOException in case of error
+     */
+    private static byte[] compress(FileVariable fileVariable) throws IOException {
+        if (fileVariable.getContent() == null || isCompressedMimeType(fileVariable.getMimeType()))
+            return null;
+        // the content is read again to be written uncompressed if the compression does not save space
+        if (!fileVariable.getContent().isRepeatable())
+            fileVariable.getValue();
+        FileContent content = fileVariable.getContent();
+        long length = content.getLength();
+        ByteArrayOutputStream compressedStream = new ByteArrayOutputStream(length < 0 ? 8192 : (int) Math.min(Math.max(32, length / 2), MAX_INITIAL_BUFFER));
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        long contentRead = 0;
+        try (InputStream inputStream = content.openStream();
+             DeflaterOutputStream deflaterStream = new DeflaterOutputStream(compressedStream, deflater)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                deflaterStream.write(buffer, 0, read);
+                contentRead += read;
+                if (length >= 0 && compressedStream.size() >= length)
+                    return null;
+            }
+            deflaterStream.finish();
+        } finally {
+            deflater.end();
+        }
+        return compressedStream.size() < contentRead ? compressedStream.toByteArray() : null;
+    }
+
+    private static byte[] decompress(byte[] value) throws IOException {
+        try (InputStream inflaterStream = new InflaterInputStream(new ByteArrayInputStream(value))) {
+            return inflaterStream.readAllBytes();
+        }
+    }
+
+    /**
+     * Write the content in base64. The content is read from its stream, and encoded on the fly
+     *
+     * @param generator generator
+     * @param content   the content, may be null
+     * @throws IOException in case of error
+     */
+    private static void writeContent(JsonGenerator generator, FileContent content) throws IOException {
+        if (content == null) {
+            generator.writeNull();
+        } else if (content.isInMemory()) {
+            generator.writeBinary(content.readAllBytes());
+        } else {
+            long length = content.getLength();
+            try (InputStream inputStream = content.openStream()) {
+                generator.writeBinary(inputStream, length < 0 || length > Integer.MAX_VALUE ? -1 : (int) length);
+            }
+        }
+    }
+
+    /**
+     * How the value is encoded before the base64
+     */
+    public enum ValueCodec {NONE, DEFLATE}
+}
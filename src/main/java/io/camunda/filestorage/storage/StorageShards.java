@@ -0,0 +1,120 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageShards                                                       */
+/*                                                                      */
+/*  Sharded layout for FOLDER and TEMPFOLDER: files are spread in       */
+/*  sub-folders named from a hash of the generated ID, for example      */
+/*  <folder>/3f/a2/<file> with a depth of 2 and a width of 2.           */
+/*  The reference content is the path relative to the folder, so flat   */
+/*  references (a file name only) are still read in a sharded folder.   */
+/* ******************************************************************** */
+package io.camunda.filestorage.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+public class StorageShards {
+
+    public static final int DEFAULT_DEPTH = 2;
+    public static final int DEFAULT_WIDTH = 2;
+    /**
+     * The hash is 32 bits: 8 hexadecimal characters
+     */
+    public static final int MAX_HASH_CHARACTERS = 8;
+
+    /**
+     * Separator in the reference content. '/' is accepted by all file systems
+     */
+    private static final String REFERENCE_SEPARATOR = "/";
+
+    private StorageShards() {
+    }
+
+    /**
+     * Check the layout
+     *
+     * @param depth number of sub-folder levels
+     * @param width number of hexadecimal characters per level
+     * @throws Exception if the layout is not valid
+     */
+    public static void checkLayout(int depth, int width) throws Exception {
+        if (depth < 1 || width < 1 || depth * width > MAX_HASH_CHARACTERS)
+            throw new Exception("Incorrect shard layout depth[" + depth + "] width[" + width + "]: depth x width must be between 1 and " + MAX_HASH_CHARACTERS);
+    }
+
+    /**
+     * Return the folder of a file. The folder is created if it does not exist
+     *
+     * @param folder  root folder of the storage
+     * @param uniqId  generated ID of the file
+     * @param depth   number of sub-folder levels, 0 for a flat folder
+     * @param width   number of hexadecimal characters per level
+     * @return the folder where the file must be saved
+     * @throws IOException if the folder can't be created
+     */
+    public static Path getShardFolder(Path folder, String uniqId, int depth, int width) throws IOException {
+        if (depth <= 0)
+            return folder;
+        CRC32C crc = new CRC32C();
+        crc.update(uniqId.getBytes(StandardCharsets.UTF_8));
+        String hash = String.format("%08x", crc.getValue());
+        Path shardFolder = folder;
+        for (int level = 0; level < depth; level++) {
+            shardFolder = shardFolder.resolve(hash.substring(level * width, (level + 1) * width));
+        }
+        if (!Files.isDirectory(shardFolder))
+            Files.createDirectories(shardFolder);
+        return shardFolder;
+    }
+
+    /**
+     * Return the reference content of a file: its path relative to the folder
+     *
+     * @param folder root folder of the storage
+     * @param file   file in the folder
+     * @return the content to save in the reference
+     */
+    public static String toReferenceContent(Path folder, Path file) {
+        Path relativePath = folder.relativize(file);
+        if (relativePath.getNameCount() == 1)
+            return relativePath.toString();
+        StringBuilder content = new StringBuilder();
+        for (Path name : relativePath) {
+            if (!content.isEmpty())
+                content.append(REFERENCE_SEPARATOR);
+            content.append(name);
+        }
+        return content.toString();
+    }
+
+    /**
+     * Return the file from the reference content. A flat reference is a file name in the folder.
+     * The reference comes from the caller: it must not designate a file outside the folder
+     *
+     * @param folder  root folder of the storage
+     * @param content content of the reference
+     * @return the file
+     * @throws IOException if the reference is absolute, or goes outside the folder
+     */
+    public static Path fromReferenceContent(Path folder, String content) throws IOException {
+        Path relativePath = folder.getFileSystem().getPath(content);
+        Path root = folder.toAbsolutePath().normalize();
+        Path file = root.resolve(relativePath).normalize();
+        if (relativePath.isAbsolute() || relativePath.getRoot() != null || file.equals(root) || !file.startsWith(root))
+            throw new IOException("Reference [" + content + "] is outside the storage folder [" + folder + "]");
+        return folder.resolve(relativePath);
+    }
+
+    /**
+     * Return the file name of the reference content
+     *
+     * @param content content of the reference
+     * @return the file name, without the sub-folders
+     */
+    public static String getFileName(String content) {
+        return content.substring(content.lastIndexOf(REFERENCE_SEPARATOR) + 1);
+    }
+}
@@ -4,9 +4,12 @@
 /*                                                                      */
 /*  Save a file variable in the temporary folder of the host            */
 /*  Attention, this is the temporary folder where the worker is running */
+/*  With TEMPFOLDER+SHARD, files are spread in sub-folders              */
+/*  Files are saved in <tmp>/filestorage, swept by the janitor          */
 /* ******************************************************************** */
 package io.camunda.filestorage.storage;
 
+import io.camunda.filestorage.FileContent;
 import io.camunda.filestorage.FileRepoFactory;
 import io.camunda.filestorage.FileVariable;
 import io.camunda.filestorage.FileVariableReference;
@@ -15,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 
 public class StorageTempFolder extends Storage {
@@ -28,6 +32,12 @@ public class StorageTempFolder extends Storage {
         return StorageDefinition.StorageDefinitionType.TEMPFOLDER.toString();
     }
 
+    /**
+     * Sub-folder of the temporary folder where the files are saved. The janitor sweeps only this sub-folder, not the
+     * files of other applications
+     */
+    public static final String STORAGE_FOLDER = "filestorage";
+
     /**
      * get the temporary path
      *
@@ -38,6 +48,15 @@ public class StorageTempFolder extends Storage {
         return Paths.get(tmpDir);
     }
 
+    /**
+     * References are relative to the temporary folder: files saved before the sub-folder are still found
+     *
+     * @return the folder where the files are saved
+     */
+    public static Path getStorageFolder() {
+        return getTempFolder().resolve(STORAGE_FOLDER);
+    }
+
     @Override
     public String getName() {
         return "TempFolder";
@@ -55,11 +74,15 @@ public class StorageTempFolder extends Storage {
         try {
             tempPath = getPathFromVariable(fileVariable);
             // File is created by getting the name
-            Files.copy(fileVariable.getValueStream(), tempPath, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel fileChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (fileVariable.getContent() != null)
+                    fileVariable.getContent().transferTo(fileChannel);
+            }
 
             FileVariableReference fileVariableReferenceOutput = new FileVariableReference();
             fileVariableReferenceOutput.storageDefinition = getStorageDefinition().encodeToString();
-            fileVariableReferenceOutput.content = tempPath.getFileName().toString();
+            fileVariableReferenceOutput.content = StorageShards.toReferenceContent(getTempFolder(), tempPath);
+            getFileRepoFactory().getTempFolderJanitor().onFileSaved(tempPath);
             logger.debug("toStorage[{}]",tempPath.toAbsolutePath().toString());
             return fileVariableReferenceOutput;
 
@@ -70,6 +93,32 @@ public class StorageTempFolder extends Storage {
         }
     }
 
+    /**
+     * Move a local file in the temporary folder. The file is renamed atomically when the source is on the same file system
+     *
+     * @param fileVariable file to save
+     * @param sourcePath   local file which contains the content
+     * @return the reference, or null if the file can't be moved atomically
+     * @throws Exception in case of error
+     */
+    @Override
+    public FileVariableReference moveToStorage(FileVariable fileVariable, Path sourcePath) throws Exception {
+        Path tempPath = getPathFromVariable(fileVariable);
+        try {
+            Files.move(sourcePath, tempPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // not the same file system: the caller will copy the content
+            Files.deleteIfExists(tempPath);
+            return null;
+        }
+        FileVariableReference fileVariableReferenceOutput = new FileVariableReference();
+        fileVariableReferenceOutput.storageDefinition = getStorageDefinition().encodeToString();
+        fileVariableReferenceOutput.content = StorageShards.toReferenceContent(getTempFolder(), tempPath);
+        getFileRepoFactory().getTempFolderJanitor().onFileSaved(tempPath);
+        logger.debug("moveToStorage[{}] from [{}]", tempPath.toAbsolutePath(), sourcePath.toAbsolutePath());
+        return fileVariableReferenceOutput;
+    }
+
     /**
      * read the fileVariable
      *
@@ -81,12 +130,12 @@ public class StorageTempFolder extends Storage {
         try {
             // get the temporary path
             Path tempFolder = getTempFolder();
-            String separator = FileSystems.getDefault().getSeparator();
             FileVariable fileVariable = new FileVariable(getStorageDefinition());
-            fileVariable.setName(fileVariableReference.content.toString());
+            fileVariable.setName(StorageShards.getFileName(fileVariableReference.content.toString()));
             fileVariable.setMimeType(FileVariable.getMimeTypeFromName(fileVariableReference.content.toString()));
-            Path filePath = Paths.get(tempFolder + separator + fileVariableReference.content.toString());
-            fileVariable.setValueStream(Files.newInputStream(filePath));
+            // a flat reference is a file name, a sharded reference is a path relative to the temporary folder
+            Path filePath = StorageShards.fromReferenceContent(tempFolder, fileVariableReference.content.toString());
+            fileVariable.setContent(FileContent.fromPath(filePath));
             logger.debug("FromStorage[{}]",filePath.toAbsolutePath().toString());
             return fileVariable;
 
@@ -103,11 +152,14 @@ public class StorageTempFolder extends Storage {
      *
      * @param fileVariableReference name of the file in the temporary directory
      * @return true if the operation was successful
+     * @throws IOException if the reference is outside the temporary folder
      */
-    public boolean purgeStorage(FileVariableReference fileVariableReference) {
+    public boolean purgeStorage(FileVariableReference fileVariableReference) throws IOException {
 
         Path tempFolder = getTempFolder();
-        File file = new File(tempFolder + FileSystems.getDefault().getSeparator() + fileVariableReference.getContent().toString());
+        Path filePath = StorageShards.fromReferenceContent(tempFolder, fileVariableReference.getContent().toString());
+        getFileRepoFactory().getTempFolderJanitor().onFileDeleted(filePath);
+        File file = filePath.toFile();
         if (file.exists())
             return file.delete();
         return true;
@@ -123,6 +175,11 @@ public class StorageTempFolder extends Storage {
             fileName = fileName.substring(0, lastDot) + "_";
         }
 
-        return Files.createTempFile(fileName, "." + suffix);
+        StorageDefinition storageDefinition = getStorageDefinition();
+        Path shardFolder = StorageShards.getShardFolder(getStorageFolder(), getFileRepoFactory().generateUniqId(),
+                storageDefinition.shardDepth, storageDefinition.shardWidth);
+        if (!Files.isDirectory(shardFolder))
+            Files.createDirectories(shardFolder);
+        return Files.createTempFile(shardFolder, fileName, "." + suffix);
     }
 }
@@ -0,0 +1,469 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StorageTempFolderJanitor                                            */
+/*                                                                      */
+/*  Background sweeper of the TEMPFOLDER storage. Files older than the  */
+/*  maximum age are deleted, and when the folder is over its quota, the */
+/*  oldest files are deleted first. The folder is scanned by batches:   */
+/*  each sweep visits a limited number of entries, then the scan goes   */
+/*  on at the next sweep. Files open in this JVM, or modified recently, */
+/*  are skipped. Saves and purges are queued, and applied by the sweep: */
+/*  a storage operation never waits for a sweep in progress.            */
+/* ******************************************************************** */
+package io.camunda.filestorage.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StorageTempFolderJanitor {
+    Logger logger = LoggerFactory.getLogger(StorageTempFolderJanitor.class.getName());
+
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofHours(24);
+    public static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_GRACE_PERIOD = Duration.ofMinutes(1);
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Descriptors of the files open by this JVM (Linux only)
+     */
+    private static final Path OPEN_FILES_FOLDER = Path.of("/proc/self/fd");
+
+    private final Path folder;
+
+    private Duration maxAge = DEFAULT_MAX_AGE;
+    /**
+     * 0: no quota
+     */
+    private long maxBytes = 0;
+    private Duration sweepInterval = DEFAULT_SWEEP_INTERVAL;
+    private Duration gracePeriod = DEFAULT_GRACE_PERIOD;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Files known by the janitor, and the same files from the oldest to the newest
+     */
+    private final Map<Path, FileEntry> files = new HashMap<>();
+    private final TreeSet<FileEntry> filesByAge = new TreeSet<>(
+            Comparator.comparingLong(FileEntry::lastModified).thenComparing(FileEntry::path));
+    private long totalBytes = 0;
+
+    /**
+     * The scan in progress: one iterator per folder level
+     */
+    private final Deque<DirectoryStream<Path>> scanStreams = new ArrayDeque<>();
+    private final Deque<Iterator<Path>> scanIterators = new ArrayDeque<>();
+    /**
+     * Files seen by the scan in progress. At the end of the scan, the other files were deleted by someone else
+     */
+    private Set<Path> scanSeen = new HashSet<>();
+
+    /**
+     * Files saved or purged since the last sweep
+     */
+    private final ConcurrentLinkedQueue<FileEvent> fileEvents = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong filesReclaimed = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong scanCompleted = new AtomicLong();
+
+    private volatile ScheduledExecutorService scheduler = null;
+
+    public StorageTempFolderJanitor(Path folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Start to sweep the folder in the background
+     */
+    public synchronized void start() {
+        if (scheduler != null)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("filestorage-tempfolder-janitor").factory());
+        long intervalMs = sweepInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (Exception e) {
+                logger.error("StorageTempFolderJanitor: sweep of [{}] failed {}", folder, e.toString());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("StorageTempFolderJanitor: start on [{}] maxAge[{}] maxBytes[{}]", folder, maxAge, maxBytes);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        fileEvents.clear();
+        closeScan();
+    }
+
+    public synchronized boolean isStarted() {
+        return scheduler != null;
+    }
+
+    /**
+     * Sweep a batch of the folder: continue the scan, delete the expired files, then delete the oldest files while the
+     * folder is over the quota
+     *
+     * @return what the sweep reclaimed
+     */
+    public synchronized SweepReport sweep() {
+        long now = System.currentTimeMillis();
+        long expiredBefore = now - maxAge.toMillis();
+        long modifiedAfter = now - gracePeriod.toMillis();
+        Set<Path> openFiles = getOpenFiles();
+        SweepReport report = new SweepReport();
+
+        applyFileEvents();
+
+        // continue the scan
+        while (report.filesScanned < batchSize) {
+            Path path = nextScanPath();
+            if (path == null) {
+                completeScan();
+                break;
+            }
+            report.filesScanned++;
+            FileEntry fileEntry = readEntry(path);
+            if (fileEntry == null)
+                continue;
+            scanSeen.add(path);
+            if (fileEntry.lastModified() < expiredBefore)
+                delete(fileEntry, openFiles, modifiedAfter, report);
+        }
+
+        // quota: oldest files first
+        if (maxBytes > 0 && totalBytes > maxBytes) {
+            List<FileEntry> oldestFiles = new ArrayList<>();
+            for (FileEntry fileEntry : filesByAge) {
+                if (oldestFiles.size() >= batchSize)
+                    break;
+                oldestFiles.add(fileEntry);
+            }
+            for (FileEntry fileEntry : oldestFiles) {
+                if (totalBytes <= maxBytes)
+                    break;
+                delete(fileEntry, openFiles, modifiedAfter, report);
+            }
+        }
+        if (report.filesReclaimed > 0)
+            logger.info("StorageTempFolderJanitor: [{}] {}", folder, report);
+        return report;
+    }
+
+    /**
+     * A file was saved in the folder: it is counted in the quota at the next sweep, before the scan finds it.
+     * The call does not wait for a sweep in progress.
+     *
+     * @param path file saved
+     */
+    public void onFileSaved(Path path) {
+        if (scheduler == null)
+            return;
+        fileEvents.add(new FileEvent(path, true));
+    }
+
+    /**
+     * A file was purged from the folder. The call does not wait for a sweep in progress.
+     *
+     * @param path file purged
+     */
+    public void onFileDeleted(Path path) {
+        if (scheduler == null)
+            return;
+        fileEvents.add(new FileEvent(path, false));
+    }
+
+    /**
+     * Apply the saves and the purges notified since the last sweep, in order
+     */
+    private void applyFileEvents() {
+        FileEvent fileEvent;
+        while ((fileEvent = fileEvents.poll()) != null) {
+            if (!fileEvent.saved())
+                removeEntry(fileEvent.path());
+            else if (readEntry(fileEvent.path()) != null)
+                scanSeen.add(fileEvent.path());
+        }
+    }
+
+    /* ******************************************************************** */
+    /*                                                                      */
+    /*  Scan                                                                */
+    /*                                                                      */
+    /* ******************************************************************** */
+
+    /**
+     * Return the next path of the scan, entering the sub-folders (sharded layout). Return null when the scan is complete
+     */
+    private Path nextScanPath() {
+        if (scanIterators.isEmpty() && !openScanFolder(folder))
+            return null;
+        while (!scanIterators.isEmpty()) {
+            Iterator<Path> iterator = scanIterators.peek();
+            if (!iterator.hasNext()) {
+                closeScanFolder();
+                if (scanIterators.isEmpty())
+                    return null;
+                continue;
+            }
+            Path path = iterator.next();
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+                openScanFolder(path);
+            else
+                return path;
+        }
+        return null;
+    }
+
+    private boolean openScanFolder(Path scanFolder) {
+        try {
+            DirectoryStream<Path> directoryStream = Files.newDirectoryStream(scanFolder);
+            scanStreams.push(directoryStream);
+            scanIterators.push(directoryStream.iterator());
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            logger.error("StorageTempFolderJanitor: can't scan [{}] {}", scanFolder, e.toString());
+            return false;
+        }
+    }
+
+    private void closeScanFolder() {
+        scanIterators.pop();
+        try {
+            scanStreams.pop().close();
+        } catch (IOException e) {
+            // nothing to do, the folder is not used anymore
+        }
+    }
+
+    private void closeScan() {
+        while (!scanIterators.isEmpty()) {
+            closeScanFolder();
+        }
+    }
+
+    /**
+     * The scan visited all the files: the files not seen were deleted by someone else
+     */
+    private void completeScan() {
+        closeScan();
+        for (Path path : new HashSet<>(files.keySet())) {
+            if (!scanSeen.contains(path))
+                removeEntry(path);
+        }
+        scanSeen = new HashSet<>();
+        scanCompleted.incrementAndGet();
+    }
+
+    /* ******************************************************************** */
+    /*                                                                      */
+    /*  Files                                                               */
+    /*                                                                      */
+    /* ******************************************************************** */
+
+    /**
+     * Read the file attributes, and update the entry
+     *
+     * @return the entry, null if this is not a regular file
+     */
+    private FileEntry readEntry(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attributes.isRegularFile())
+                return null;
+            FileEntry fileEntry = new FileEntry(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+            removeEntry(path);
+            files.put(path, fileEntry);
+            filesByAge.add(fileEntry);
+            totalBytes += fileEntry.size();
+            return fileEntry;
+        } catch (IOException e) {
+            // deleted in the meantime
+            removeEntry(path);
+            return null;
+        }
+    }
+
+    private void removeEntry(Path path) {
+        FileEntry fileEntry = files.remove(path);
+        if (fileEntry != null) {
+            filesByAge.remove(fileEntry);
+            totalBytes -= fileEntry.size();
+        }
+    }
+
+    private void delete(FileEntry fileEntry, Set<Path> openFiles, long modifiedAfter, SweepReport report) {
+        if (fileEntry.lastModified() > modifiedAfter || openFiles.contains(fileEntry.path())) {
+            report.filesSkipped++;
+            return;
+        }
+        try {
+            if (Files.deleteIfExists(fileEntry.path())) {
+                report.filesReclaimed++;
+                report.bytesReclaimed += fileEntry.size();
+                filesReclaimed.incrementAndGet();
+                bytesReclaimed.addAndGet(fileEntry.size());
+            }
+            removeEntry(fileEntry.path());
+        } catch (IOException e) {
+            // open by another process on some file systems
+            report.filesSkipped++;
+            logger.debug("StorageTempFolderJanitor: can't delete [{}] {}", fileEntry.path(), e.toString());
+        }
+    }
+
+    /**
+     * Return the files of the folder open in this JVM. The list is available on Linux only: on other systems, the grace
+     * period protects the files in use, and a file open by another process may not be deleted by the file system
+     */
+    private Set<Path> getOpenFiles() {
+        if (!Files.isDirectory(OPEN_FILES_FOLDER))
+            return Collections.emptySet();
+        Set<Path> openFiles = new HashSet<>();
+        // descriptors link to the real path: the folder may be behind a symbolic link
+        Path realFolder;
+        try {
+            realFolder = folder.toRealPath();
+        } catch (IOException e) {
+            return openFiles;
+        }
+        try (DirectoryStream<Path> descriptors = Files.newDirectoryStream(OPEN_FILES_FOLDER)) {
+            for (Path descriptor : descriptors) {
+                try {
+                    Path target = Files.readSymbolicLink(descriptor);
+                    if (target.startsWith(realFolder))
+                        openFiles.add(folder.resolve(realFolder.relativize(target)));
+                } catch (IOException e) {
+                    // descriptor closed in the meantime
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("StorageTempFolderJanitor: can't list the open files {}", e.toString());
+        }
+        return openFiles;
+    }
+
+    /* ******************************************************************** */
+    /*                                                                      */
+    /*  Configuration and statistics                                        */
+    /*                                                                      */
+    /* ******************************************************************** */
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    public synchronized void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @param maxBytes maximum size of the folder, 0 for no quota
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The interval is used at the next start()
+     *
+     * @param sweepInterval delay between two sweeps
+     */
+    public synchronized void setSweepInterval(Duration sweepInterval) {
+        this.sweepInterval = sweepInterval;
+    }
+
+    /**
+     * @param gracePeriod a file modified during this period is never deleted: it may be written
+     */
+    public synchronized void setGracePeriod(Duration gracePeriod) {
+        this.gracePeriod = gracePeriod;
+    }
+
+    /**
+     * @param batchSize number of entries scanned, and of files deleted for the quota, per sweep
+     */
+    public synchronized void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getFileCount() {
+        return files.size();
+    }
+
+    public long getFilesReclaimed() {
+        return filesReclaimed.get();
+    }
+
+    public long getBytesReclaimed() {
+        return bytesReclaimed.get();
+    }
+
+    public long getScanCompleted() {
+        return scanCompleted.get();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "janitor[" + folder + "] files[" + files.size() + "] bytes[" + totalBytes + "] reclaimedFiles["
+                + filesReclaimed.get() + "] reclaimedBytes[" + bytesReclaimed.get() + "] scans[" + scanCompleted.get() + "]";
+    }
+
+    /**
+     * Result of one sweep
+     */
+    public static class SweepReport {
+        public int filesScanned = 0;
+        public int filesReclaimed = 0;
+        public long bytesReclaimed = 0;
+        public int filesSkipped = 0;
+
+        @Override
+        public String toString() {
+            return "scanned[" + filesScanned + "] reclaimedFiles[" + filesReclaimed + "] reclaimedBytes[" + bytesReclaimed
+                    + "] skipped[" + filesSkipped + "]";
+        }
+    }
+
+    private record FileEntry(Path path, long size, long lastModified) {
+    }
+
+    private record FileEvent(Path path, boolean saved) {
+    }
+}
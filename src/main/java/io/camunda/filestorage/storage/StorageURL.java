@@ -1,16 +1,24 @@
 package io.camunda.filestorage.storage;
 
+import io.camunda.filestorage.FileContent;
 import io.camunda.filestorage.FileRepoFactory;
 import io.camunda.filestorage.FileVariable;
 import io.camunda.filestorage.FileVariableReference;
+import io.camunda.filestorage.url.UrlDiskCache;
+import io.camunda.filestorage.url.UrlFactoryConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URL;
+import java.net.http.HttpResponse;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class StorageURL extends Storage {
     Logger logger = LoggerFactory.getLogger(StorageURL.class.getName());
@@ -64,25 +72,18 @@ public class StorageURL extends Storage {
      */
     public FileVariable fromStorage(FileVariableReference fileVariableReference) throws Exception {
         try {
-            URL url = new URL(fileVariableReference.getContent().toString());
+            URI uri = new URI(fileVariableReference.getContent().toString());
 
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setInstanceFollowRedirects(true);
-            connection.setRequestProperty("User-Agent", "Java"); // IMPORTANT for GitHub
-
-            // Open a connection to the URL
-            // don't use a try() because we want the inputStream open when we finish the method
-            InputStream urlInputStream = connection.getInputStream();
-
-            // Define a buffer to read data into
-            Path pathUri = Paths.get(url.toURI().getPath());
+            Path pathUri = Paths.get(uri.getPath());
             String filename = pathUri.getFileName().toString();
 
             FileVariable fileVariable = new FileVariable(getStorageDefinition());
             fileVariable.setName(filename);
-            fileVariable.setOriginalName(url.toString());
+            fileVariable.setOriginalName(uri.toString());
             fileVariable.setMimeType(FileVariable.getMimeTypeFromPath(pathUri));
-            fileVariable.setValueStream(urlInputStream);
+            UrlDiskCache diskCache = UrlFactoryConnection.getInstance().getDiskCache();
+            FileContent content = diskCache == null ? null : getCachedContent(diskCache, uri);
+            fileVariable.setContent(content != null ? content : getContent(uri));
             return fileVariable;
 
         } catch (Exception e) {
@@ -92,6 +93,125 @@ public class StorageURL extends Storage {
 
     }
 
+    /**
+     * Return the content from the server
+     *
+     * @param uri URI of the content
+     * @return the content
+     * @throws IOException in case of error
+     */
+    private FileContent getContent(URI uri) throws IOException {
+        // don't use a try() because we want the inputStream open when we finish the method
+        HttpResponse<InputStream> response = UrlFactoryConnection.getInstance().get(uri, 0, FileContent.UNKNOWN_LENGTH);
+        return getContent(uri, response);
+    }
+
+    /**
+     * Return the content from a response
+     *
+     * @param uri      URI of the content
+     * @param response response, with the content
+     * @return the content
+     * @throws IOException in case of error
+     */
+    private FileContent getContent(URI uri, HttpResponse<InputStream> response) throws IOException {
+        long length = UrlFactoryConnection.getContentLength(response.headers());
+        boolean acceptRanges = response.headers().firstValue("Accept-Ranges").filter("bytes"::equalsIgnoreCase).isPresent();
+        AtomicReference<InputStream> firstStream = new AtomicReference<>(UrlFactoryConnection.getBody(response));
+
+        // the first read uses the response already received, the next ones send a new request
+        if (acceptRanges) {
+            return FileContent.fromRangeSupplier((offset, rangeLength) -> {
+                if (offset == 0 && rangeLength < 0) {
+                    InputStream inputStream = firstStream.getAndSet(null);
+                    if (inputStream != null)
+                        return inputStream;
+                }
+                return openContent(uri, offset, rangeLength);
+            }, length);
+        }
+        return FileContent.fromSupplier(() -> {
+            InputStream inputStream = firstStream.getAndSet(null);
+            return inputStream != null ? inputStream : openContent(uri, 0, FileContent.UNKNOWN_LENGTH);
+        }, length);
+    }
+
+    /**
+     * Return the content via the disk cache. The cached document is revalidated: it is downloaded only if it changed
+     *
+     * @param diskCache disk cache
+     * @param uri       URI of the content
+     * @return the content, or null if the server does not give a way to revalidate the document (no ETag, no Last-Modified)
+     * @throws IOException in case of error
+     */
+    private FileContent getCachedContent(UrlDiskCache diskCache, URI uri) throws IOException {
+        String url = uri.toString();
+        UrlDiskCache.CacheEntry entry = diskCache.get(url);
+        HttpResponse<InputStream> response;
+        try {
+            if (entry != null && entry.isRevalidable()) {
+                diskCache.countRevalidation();
+                response = UrlFactoryConnection.getInstance().getIfModified(uri, entry.etag(), entry.lastModified());
+            } else {
+                response = UrlFactoryConnection.getInstance().get(uri, 0, FileContent.UNKNOWN_LENGTH);
+            }
+        } catch (FileNotFoundException e) {
+            diskCache.invalidate(url);
+            throw e;
+        }
+        Path cachedPath = null;
+        if (response.statusCode() == 304) {
+            response.body().close();
+            cachedPath = diskCache.useCached(url);
+            // the document was evicted in the meantime
+            if (cachedPath == null)
+                response = UrlFactoryConnection.getInstance().get(uri, 0, FileContent.UNKNOWN_LENGTH);
+        }
+        if (cachedPath == null) {
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            if (etag == null && lastModified == null) {
+                diskCache.invalidate(url);
+                return getContent(uri, response);
+            }
+            try (InputStream inputStream = UrlFactoryConnection.getBody(response)) {
+                cachedPath = diskCache.put(url, etag, lastModified, inputStream);
+            }
+        }
+        // the document may be evicted before it is read: then it is read from the server
+        FileContent cachedContent = FileContent.fromPath(cachedPath);
+        return FileContent.fromRangeSupplier((offset, length) -> {
+            try {
+                return cachedContent.openStream(offset, length);
+            } catch (NoSuchFileException e) {
+                return openContent(uri, offset, length);
+            }
+        }, cachedContent.getLength());
+    }
+
+    /**
+     * Open the content, or a range of the content
+     *
+     * @param uri    URI of the content
+     * @param offset first byte to read
+     * @param length number of bytes to read, FileContent.UNKNOWN_LENGTH to read until the end
+     * @return the stream on the content
+     * @throws IOException in case of error
+     */
+    private InputStream openContent(URI uri, long offset, long length) throws IOException {
+        HttpResponse<InputStream> response = UrlFactoryConnection.getInstance().get(uri, offset, length);
+        InputStream inputStream = UrlFactoryConnection.getBody(response);
+        if (response.statusCode() == 206 || (offset == 0 && length < 0))
+            return inputStream;
+        // the server ignored the range: skip the first bytes, and stream the range. The caller closes the stream
+        try {
+            return FileContent.fromStream(inputStream, FileContent.UNKNOWN_LENGTH).openStream(offset, length);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
     /**
      * Delete the file
      *
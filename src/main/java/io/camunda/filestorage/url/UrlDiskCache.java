@@ -0,0 +1,308 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  UrlDiskCache                                                        */
+/*                                                                      */
+/*  Local disk cache for URL documents, keyed by the URL. The total     */
+/*  size is bounded, the least recently used documents are evicted.     */
+/*  A document is revalidated on each access with its ETag or its       */
+/*  Last-Modified: on a 304, the cached file is used.                   */
+/* ******************************************************************** */
+package io.camunda.filestorage.url;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class UrlDiskCache {
+    Logger logger = LoggerFactory.getLogger(UrlDiskCache.class.getName());
+
+    private static final String CONTENT_SUFFIX = ".bin";
+    private static final String METADATA_SUFFIX = ".properties";
+    private static final String PROPERTY_URL = "url";
+    private static final String PROPERTY_ETAG = "etag";
+    private static final String PROPERTY_LAST_MODIFIED = "lastModified";
+
+    private final Path cacheFolder;
+    private final long maxBytes;
+    /**
+     * URL to entry, least recently used first
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    /**
+     * Create the cache. Documents already in the folder (from a previous run) are kept
+     *
+     * @param cacheFolder folder to save the documents. Created if it does not exist
+     * @param maxBytes    maximum total size of the documents
+     * @throws IOException if the folder can't be created or read
+     */
+    public UrlDiskCache(Path cacheFolder, long maxBytes) throws IOException {
+        this.cacheFolder = cacheFolder;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(cacheFolder);
+        loadEntries();
+    }
+
+    /**
+     * Return the entry of an URL, if the cache has it. The caller must revalidate it before using it
+     *
+     * @param url URL
+     * @return the entry, or null
+     */
+    public synchronized CacheEntry get(String url) {
+        return entries.get(url);
+    }
+
+    /**
+     * The server confirmed (304) the cached document is up to date
+     *
+     * @param url URL
+     * @return the path to the cached document, or null if the document was evicted in the meantime
+     */
+    public synchronized Path useCached(String url) {
+        CacheEntry entry = entries.get(url);
+        if (entry == null || !Files.exists(entry.contentPath)) {
+            return null;
+        }
+        hitCount.incrementAndGet();
+        try {
+            // the order of use is kept between two runs
+            Files.setLastModifiedTime(entry.contentPath, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // not important
+        }
+        return entry.contentPath;
+    }
+
+    /**
+     * A conditional request is sent to the server, to revalidate a cached document
+     */
+    public void countRevalidation() {
+        revalidationCount.incrementAndGet();
+    }
+
+    /**
+     * Save a document in the cache. The stream is copied in a temporary file, then the file replaces the previous version
+     *
+     * @param url          URL
+     * @param etag         ETag of the response, may be null
+     * @param lastModified Last-Modified of the response, may be null
+     * @param inputStream  content. The caller closes it
+     * @return the path to the cached document
+     * @throws IOException in case of error
+     */
+    public Path put(String url, String etag, String lastModified, InputStream inputStream) throws IOException {
+        missCount.incrementAndGet();
+        String key = getKey(url);
+        Path temporaryPath = Files.createTempFile(cacheFolder, key, ".tmp");
+        try {
+            long size;
+            try (OutputStream outputStream = Files.newOutputStream(temporaryPath)) {
+                size = inputStream.transferTo(outputStream);
+            }
+            synchronized (this) {
+                CacheEntry entry = new CacheEntry(url, cacheFolder.resolve(key + CONTENT_SUFFIX), etag, lastModified, size);
+                removeEntry(url);
+                moveReplace(temporaryPath, entry.contentPath);
+                writeMetadata(key, entry);
+                entries.put(url, entry);
+                totalBytes += size;
+                evict();
+                return entry.contentPath;
+            }
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    /**
+     * A document is not valid anymore (the server does not have it, or it can't be revalidated)
+     *
+     * @param url URL
+     */
+    public synchronized void invalidate(String url) {
+        removeEntry(url);
+    }
+
+    /**
+     * Number of accesses served by the cached file, after a revalidation
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Number of accesses which downloaded the document
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Number of conditional requests sent to the server (If-None-Match / If-Modified-Since)
+     */
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Evict the least recently used documents until the total size is under the maximum
+     */
+    private void evict() {
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        // the most recent document is kept, even if it is bigger than the maximum
+        while (totalBytes > maxBytes && entries.size() > 1 && iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            iterator.remove();
+            totalBytes -= entry.size;
+            deleteFiles(entry);
+        }
+    }
+
+    private void removeEntry(String url) {
+        CacheEntry entry = entries.remove(url);
+        if (entry != null) {
+            totalBytes -= entry.size;
+            deleteFiles(entry);
+        }
+    }
+
+    private void deleteFiles(CacheEntry entry) {
+        try {
+            Files.deleteIfExists(entry.contentPath);
+            Files.deleteIfExists(getMetadataPath(entry.contentPath));
+        } catch (IOException e) {
+            logger.error("UrlDiskCache: can't delete [{}]: {}", entry.contentPath, e.getMessage());
+        }
+    }
+
+    private void writeMetadata(String key, CacheEntry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(PROPERTY_URL, entry.url);
+        if (entry.etag != null)
+            properties.setProperty(PROPERTY_ETAG, entry.etag);
+        if (entry.lastModified != null)
+            properties.setProperty(PROPERTY_LAST_MODIFIED, entry.lastModified);
+        try (Writer writer = Files.newBufferedWriter(cacheFolder.resolve(key + METADATA_SUFFIX), StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+    }
+
+    /**
+     * Load the documents saved by a previous run. The order of use is the last modification time of the files
+     */
+    private void loadEntries() throws IOException {
+        List<Path> contentPaths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheFolder, "*" + CONTENT_SUFFIX)) {
+            stream.forEach(contentPaths::add);
+        }
+        contentPaths.sort(Comparator.comparingLong(this::getLastModifiedTime));
+        for (Path contentPath : contentPaths) {
+            Path metadataPath = getMetadataPath(contentPath);
+            if (!Files.exists(metadataPath)) {
+                Files.deleteIfExists(contentPath);
+                continue;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(metadataPath, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            CacheEntry entry = new CacheEntry(properties.getProperty(PROPERTY_URL), contentPath,
+                    properties.getProperty(PROPERTY_ETAG), properties.getProperty(PROPERTY_LAST_MODIFIED), Files.size(contentPath));
+            entries.put(entry.url, entry);
+            totalBytes += entry.size;
+        }
+        evict();
+    }
+
+    private long getLastModifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static Path getMetadataPath(Path contentPath) {
+        String fileName = contentPath.getFileName().toString();
+        return contentPath.resolveSibling(fileName.substring(0, fileName.length() - CONTENT_SUFFIX.length()) + METADATA_SUFFIX);
+    }
+
+    private static void moveReplace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The file name is a hash of the URL
+     */
+    private static String getKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory in all JVM
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A cached document, with its validators
+     */
+    public record CacheEntry(String url, Path contentPath, String etag, String lastModified, long size) {
+        public boolean isRevalidable() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    /**
+     * Report, to size the cache
+     */
+    @Override
+    public String toString() {
+        return "UrlDiskCache[" + cacheFolder + "] entries=" + getEntryCount() + " bytes=" + getTotalBytes() + "/" + maxBytes
+                + " hit=" + hitCount.get() + " miss=" + missCount.get() + " revalidation=" + revalidationCount.get();
+    }
+}
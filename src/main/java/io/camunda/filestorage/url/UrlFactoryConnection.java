@@ -0,0 +1,340 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  UrlFactoryConnection                                                */
+/*                                                                      */
+/*  HTTP client shared by all URL storages. The client keeps the        */
+/*  connections alive, and uses HTTP/2 when the server accepts it.      */
+/*  Requests have a timeout, the status is checked, and the body is     */
+/*  decompressed. A read of the body waiting longer than the read       */
+/*  timeout closes the body: a stalled server does not block a thread.  */
+/* ******************************************************************** */
+package io.camunda.filestorage.url;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class UrlFactoryConnection {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(60);
+    /**
+     * Some servers (GitHub) reject requests without a User-Agent
+     */
+    public static final String USER_AGENT = "Java";
+
+    private static final UrlFactoryConnection singletonUrlFactory = new UrlFactoryConnection();
+
+    /**
+     * Check the reads of the bodies. The thread runs only a check per read timeout of a body being read
+     */
+    private static final ScheduledExecutorService readTimeoutWatchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "filestorage-url-read-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private volatile Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private volatile Duration readTimeout = DEFAULT_READ_TIMEOUT;
+    private volatile HttpClient httpClient = buildHttpClient(DEFAULT_CONNECT_TIMEOUT);
+    private volatile UrlDiskCache diskCache = null;
+
+    public static UrlFactoryConnection getInstance() {
+        return singletonUrlFactory;
+    }
+
+    /**
+     * Maximum time to establish a connection. A new client is created: connections already open are not reused
+     *
+     * @param connectTimeout time to connect
+     */
+    public synchronized void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.httpClient = buildHttpClient(connectTimeout);
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Maximum time to wait for the response headers, after the request is sent
+     *
+     * @param requestTimeout time to wait
+     */
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Maximum time to wait for data of the body. The request timeout stops at the response headers: when a read of
+     * the body receives no byte during this time, the body is closed, and the read fails with a HttpTimeoutException
+     *
+     * @param readTimeout time to wait
+     */
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Cache the documents on the local disk. They are revalidated on each access, and downloaded only when they change
+     *
+     * @param diskCache the cache, null to disable the cache (default)
+     */
+    public void setDiskCache(UrlDiskCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * @return the disk cache, null if the cache is not enabled
+     */
+    public UrlDiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Send a GET request, and return the response. The status is checked: only a 2xx response is returned
+     *
+     * @param uri    URI to get
+     * @param offset first byte to read. The server may ignore the range: check the status (206 when it accepts it)
+     * @param length number of bytes to read, -1 to read until the end
+     * @return the response. Caller is responsible to close the body
+     * @throws FileNotFoundException if the server returns 404 or 410
+     * @throws IOException           on any other status, or in case of error
+     */
+    public HttpResponse<InputStream> get(URI uri, long offset, long length) throws IOException {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("User-Agent", USER_AGENT)
+                .GET();
+        // a range applies to the encoded body: the compression is asked only for the complete content
+        if (offset > 0 || length >= 0)
+            requestBuilder.header("Range", "bytes=" + offset + "-" + (length >= 0 ? String.valueOf(offset + length - 1) : ""));
+        else
+            requestBuilder.header("Accept-Encoding", "gzip, deflate");
+        return send(requestBuilder.build(), false);
+    }
+
+    /**
+     * Send a conditional GET request, to revalidate a cached document
+     *
+     * @param uri          URI to get
+     * @param etag         ETag of the cached document, may be null
+     * @param lastModified Last-Modified of the cached document, may be null
+     * @return the response: 304 if the cached document is up to date, else a 2xx with the new document
+     * @throws IOException in case of error
+     */
+    public HttpResponse<InputStream> getIfModified(URI uri, String etag, String lastModified) throws IOException {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        if (etag != null)
+            requestBuilder.header("If-None-Match", etag);
+        if (lastModified != null)
+            requestBuilder.header("If-Modified-Since", lastModified);
+        return send(requestBuilder.build(), true);
+    }
+
+    /**
+     * Send a request, and check the status of the response
+     *
+     * @param request          request to send
+     * @param acceptNotModified if true, a 304 is returned too
+     * @return the response, with a 2xx status (or 304). Caller is responsible to close the body
+     * @throws IOException in case of error
+     */
+    public HttpResponse<InputStream> send(HttpRequest request, boolean acceptNotModified) throws IOException {
+        HttpResponse<InputStream> response;
+        long readTimeoutNanos = readTimeout.toNanos();
+        HttpResponse.BodyHandler<InputStream> bodyHandler = responseInfo -> HttpResponse.BodySubscribers.mapping(
+                HttpResponse.BodySubscribers.ofInputStream(), body -> new ReadTimeoutInputStream(body, request.uri(), readTimeoutNanos));
+        try {
+            response = httpClient.send(request, bodyHandler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during request [" + request.uri() + "]", e);
+        }
+        int status = response.statusCode();
+        if ((status >= 200 && status < 300) || (acceptNotModified && status == 304))
+            return response;
+        // the connection goes back to the pool only when the body is consumed or closed
+        response.body().close();
+        if (status == 404 || status == 410)
+            throw new FileNotFoundException("URL [" + request.uri() + "] not found (HTTP " + status + ")");
+        throw new IOException("URL [" + request.uri() + "] returned HTTP " + status);
+    }
+
+    /**
+     * Return the body, decompressed if the server compressed it
+     *
+     * @param response response
+     * @return the stream on the body
+     * @throws IOException in case of error
+     */
+    public static InputStream getBody(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(response.body());
+            case "deflate" -> new InflaterInputStream(response.body());
+            default -> response.body();
+        };
+    }
+
+    /**
+     * Return the length of the content. When the body is compressed, the Content-Length is the compressed length,
+     * so the length is unknown
+     *
+     * @param headers headers of the response
+     * @return the length, -1 if it is not known
+     */
+    public static long getContentLength(HttpHeaders headers) {
+        if (headers.firstValue("Content-Encoding").filter(encoding -> !encoding.equalsIgnoreCase("identity")).isPresent())
+            return -1;
+        return headers.firstValueAsLong("Content-Length").orElse(-1);
+    }
+
+    /**
+     * Body of a response. A read waiting for data longer than the read timeout closes the body, and fails.
+     * A check is scheduled only while a read is in progress: a body not read, or never closed, costs nothing
+     */
+    private static class ReadTimeoutInputStream extends FilterInputStream {
+        private final URI uri;
+        private final long readTimeoutNanos;
+        private final AtomicBoolean checkScheduled = new AtomicBoolean();
+        /**
+         * Start of the read in progress, 0 when no read is in progress
+         */
+        private volatile long readStartNanos = 0;
+        private volatile boolean timedOut = false;
+
+        ReadTimeoutInputStream(InputStream body, URI uri, long readTimeoutNanos) {
+            super(body);
+            this.uri = uri;
+            this.readTimeoutNanos = readTimeoutNanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            beginRead();
+            try {
+                int value = super.read();
+                checkTimedOut();
+                return value;
+            } catch (IOException e) {
+                checkTimedOut();
+                throw e;
+            } finally {
+                readStartNanos = 0;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            beginRead();
+            try {
+                int read = super.read(buffer, offset, length);
+                checkTimedOut();
+                return read;
+            } catch (IOException e) {
+                checkTimedOut();
+                throw e;
+            } finally {
+                readStartNanos = 0;
+            }
+        }
+
+        @Override
+        public long skip(long length) throws IOException {
+            beginRead();
+            try {
+                long skipped = super.skip(length);
+                checkTimedOut();
+                return skipped;
+            } catch (IOException e) {
+                checkTimedOut();
+                throw e;
+            } finally {
+                readStartNanos = 0;
+            }
+        }
+
+        private void beginRead() throws IOException {
+            checkTimedOut();
+            readStartNanos = Math.max(1, System.nanoTime());
+            if (checkScheduled.compareAndSet(false, true))
+                scheduleCheck(readTimeoutNanos);
+        }
+
+        /**
+         * A closed body returns the end of the stream to the blocked read: the timeout is reported as an error,
+         * else the content would be truncated
+         */
+        private void checkTimedOut() throws HttpTimeoutException {
+            if (timedOut)
+                throw new HttpTimeoutException("URL [" + uri + "]: no data received during " + Duration.ofNanos(readTimeoutNanos));
+        }
+
+        private void scheduleCheck(long delayNanos) {
+            readTimeoutWatchdog.schedule(this::check, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void check() {
+            // the flag is reset before the read state is checked: a read which begins now schedules its own check
+            checkScheduled.set(false);
+            long readStart = readStartNanos;
+            if (readStart == 0)
+                return;
+            long waitNanos = System.nanoTime() - readStart;
+            if (waitNanos >= readTimeoutNanos) {
+                timedOut = true;
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // the read fails anyway
+                }
+                return;
+            }
+            if (checkScheduled.compareAndSet(false, true))
+                scheduleCheck(readTimeoutNanos - waitNanos);
+        }
+    }
+
+    private static HttpClient buildHttpClient(Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package io.camunda.filestorage;
+
+import io.camunda.filestorage.metrics.StorageMetrics;
+import io.camunda.filestorage.metrics.StorageMetricsRegistry;
+import io.camunda.filestorage.storage.StorageDefinition;
+import io.camunda.filestorage.storage.StorageFolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileRepoFactoryMetricsTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+    private final FileRepoFactory fileRepoFactory = FileRepoFactory.getInstance();
+    private final StorageMetricsRegistry metrics = new StorageMetricsRegistry();
+    private StorageMetrics previousMetrics;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setMetrics() {
+        previousMetrics = fileRepoFactory.getStorageMetrics();
+        fileRepoFactory.setStorageMetrics(metrics);
+    }
+
+    @AfterEach
+    void restoreMetrics() {
+        fileRepoFactory.setStorageMetrics(previousMetrics);
+    }
+
+    @Test
+    void readIsRecordedWithTheBytesActuallyRead() throws Exception {
+        FileVariableReference reference = save(StorageFolder.getStorageDefinitionString(tempDir));
+
+        FileVariable fileVariable = fileRepoFactory.loadFileVariable(reference, null);
+        assertThat(get(StorageMetrics.Operation.LOAD).getCount()).isEqualTo(1);
+        assertThat(get(StorageMetrics.Operation.LOAD).getBytes()).isZero();
+        assertThat(get(StorageMetrics.Operation.READ).getCount()).isZero();
+
+        try (InputStream inputStream = fileVariable.getContent().openStream()) {
+            assertThat(inputStream.readNBytes(3)).hasSize(3);
+            assertThat(get(StorageMetrics.Operation.READ).getInFlight()).isEqualTo(1);
+        }
+        assertThat(get(StorageMetrics.Operation.READ).getCount()).isEqualTo(1);
+        assertThat(get(StorageMetrics.Operation.READ).getBytes()).isEqualTo(3);
+        assertThat(get(StorageMetrics.Operation.READ).getInFlight()).isZero();
+    }
+
+    @Test
+    void cacheHitIsNotRecordedAsALoad() throws Exception {
+        FileVariableReference reference = save(StorageDefinition.StorageDefinitionType.FOLDER + StorageDefinition.OPTION_DELIMITATEUR
+                + StorageDefinition.OPTION_READ_CACHE + StorageDefinition.STORAGE_DEFINITION_DELIMITATEUR + tempDir);
+
+        // the first read fills the cache
+        assertThat(fileRepoFactory.loadFileVariable(reference, null).getValue()).isEqualTo(CONTENT);
+        assertThat(fileRepoFactory.loadFileVariable(reference, null).getValue()).isEqualTo(CONTENT);
+
+        assertThat(get(StorageMetrics.Operation.LOAD).getCount()).isEqualTo(1);
+        assertThat(get(StorageMetrics.Operation.READ).getBytes()).isEqualTo(CONTENT.length);
+        assertThat(get(StorageMetrics.Operation.CACHE_HIT).getCount()).isEqualTo(1);
+    }
+
+    private FileVariableReference save(String storageDefinition) throws Exception {
+        FileVariable fileVariable = new FileVariable(StorageDefinition.decodeFromString(storageDefinition));
+        fileVariable.setName("metrics.txt");
+        fileVariable.setMimeType("text/plain");
+        fileVariable.setValue(CONTENT);
+        return fileRepoFactory.saveFileVariable(fileVariable, null);
+    }
+
+    private StorageMetricsRegistry.OperationMetrics get(StorageMetrics.Operation operation) {
+        return metrics.getMetrics(StorageDefinition.StorageDefinitionType.FOLDER, operation);
+    }
+}
@@ -0,0 +1,69 @@
+package io.camunda.filestorage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NodeUniqIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void idsAreUniqAcrossThreads() throws Exception {
+        NodeUniqIdGenerator generator = new NodeUniqIdGenerator("node-1");
+        Set<String> ids = generateConcurrently(List.of(generator));
+        assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void generatorsWithTheSameNodeDoNotCollide() throws Exception {
+        // two factories, or two generators, in one JVM with a fixed filestorage.nodeId
+        List<UniqIdGenerator> generators = List.of(new NodeUniqIdGenerator("node-1"), new NodeUniqIdGenerator("node-1"));
+        Set<String> ids = generateConcurrently(generators);
+        assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void nodeIdIsSanitized() {
+        NodeUniqIdGenerator generator = new NodeUniqIdGenerator("pod/1 a");
+        assertThat(generator.getNodeId()).isEqualTo("pod-1-a");
+        assertThat(generator.generateUniqId()).matches("_\\d+_pod-1-a_[0-9a-z]+_[0-9a-z]+");
+    }
+
+    /**
+     * Each thread alternates between the generators
+     */
+    private static Set<String> generateConcurrently(List<? extends UniqIdGenerator> generators) throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids.add(generators.get(i % generators.size()).generateUniqId());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executorService.shutdown();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,123 @@
+package io.camunda.filestorage.storage;
+
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.FileVariable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageCacheTest {
+
+    private static final StorageDefinition FOLDER = new StorageDefinition(StorageDefinition.StorageDefinitionType.FOLDER);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void memoryHitReturnsACopy() throws Exception {
+        StorageCache storageCache = new StorageCache();
+        byte[] content = "cached content".getBytes(StandardCharsets.UTF_8);
+        storageCache.put("key", fileVariable(content, new AtomicInteger())).getValue();
+
+        byte[] firstValue = storageCache.get("key", FOLDER, null).getValue();
+        firstValue[0] = 'X';
+
+        assertThat(storageCache.get("key", FOLDER, null).getValue()).isEqualTo(content);
+    }
+
+    @Test
+    void contentIsCachedOnlyWhenCompletelyRead() throws Exception {
+        StorageCache storageCache = new StorageCache();
+        AtomicInteger opened = new AtomicInteger();
+        FileVariable loaded = storageCache.put("key", fileVariable("0123456789".getBytes(StandardCharsets.UTF_8), opened));
+
+        // loading does not read the content
+        assertThat(opened).hasValue(0);
+        assertThat(storageCache.get("key", FOLDER, null)).isNull();
+
+        // a range read goes to the storage, and is not cached
+        try (InputStream inputStream = loaded.getContent().openStream(2, 3)) {
+            assertThat(inputStream.readAllBytes()).isEqualTo("234".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(storageCache.get("key", FOLDER, null)).isNull();
+
+        assertThat(loaded.getValue()).isEqualTo("0123456789".getBytes(StandardCharsets.UTF_8));
+        assertThat(storageCache.get("key", FOLDER, null).getValue()).isEqualTo("0123456789".getBytes(StandardCharsets.UTF_8));
+        assertThat(opened).hasValue(2);
+    }
+
+    @Test
+    void spilledEntryIsReadFromTheDisk() throws Exception {
+        StorageCache storageCache = new StorageCache();
+        storageCache.setDiskFolder(tempDir);
+        storageCache.setMemoryMaxBytes(16);
+        storageCache.put("first", fileVariable("first content".getBytes(StandardCharsets.UTF_8), new AtomicInteger())).getValue();
+        storageCache.put("second", fileVariable("second content".getBytes(StandardCharsets.UTF_8), new AtomicInteger())).getValue();
+
+        assertThat(storageCache.getDiskBytes()).isEqualTo("first content".length());
+        assertThat(storageCache.get("first", FOLDER, null).getValue()).isEqualTo("first content".getBytes(StandardCharsets.UTF_8));
+        assertThat(storageCache.getDiskHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void fileBiggerThanTheDiskTierIsNotCached() throws Exception {
+        StorageCache storageCache = new StorageCache();
+        storageCache.setDiskFolder(tempDir);
+        storageCache.setMemoryMaxBytes(4);
+        storageCache.setDiskMaxBytes(16);
+        storageCache.put("small", fileVariable("small content".getBytes(StandardCharsets.UTF_8), new AtomicInteger())).getValue();
+        assertThat(storageCache.getDiskBytes()).isEqualTo("small content".length());
+
+        byte[] big = "a content bigger than the disk tier".getBytes(StandardCharsets.UTF_8);
+        assertThat(storageCache.put("big", fileVariable(big, new AtomicInteger())).getValue()).isEqualTo(big);
+        assertThat(storageCache.put("unknown", fileVariableUnknownLength(big)).getValue()).isEqualTo(big);
+
+        assertThat(storageCache.get("big", FOLDER, null)).isNull();
+        assertThat(storageCache.get("unknown", FOLDER, null)).isNull();
+        // the other entries are kept
+        assertThat(storageCache.get("small", FOLDER, null)).isNotNull();
+        assertThat(storageCache.getDiskBytes()).isEqualTo("small content".length());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void contentLoadedBeforeAnInvalidationIsNotCached() throws Exception {
+        StorageCache storageCache = new StorageCache();
+        FileVariable loaded = storageCache.put("key", fileVariable("old content".getBytes(StandardCharsets.UTF_8), new AtomicInteger()));
+
+        // the file is overwritten, or purged, before the caller reads the old content
+        storageCache.invalidate("key");
+        assertThat(loaded.getValue()).isEqualTo("old content".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(storageCache.get("key", FOLDER, null)).isNull();
+    }
+
+    private static FileVariable fileVariableUnknownLength(byte[] content) {
+        FileVariable fileVariable = new FileVariable(FOLDER);
+        fileVariable.setName("file.txt");
+        fileVariable.setContent(FileContent.fromSupplier(() -> new ByteArrayInputStream(content), FileContent.UNKNOWN_LENGTH));
+        return fileVariable;
+    }
+
+    private static FileVariable fileVariable(byte[] content, AtomicInteger opened) {
+        FileVariable fileVariable = new FileVariable(FOLDER);
+        fileVariable.setName("file.txt");
+        FileContent source = FileContent.fromBytes(content);
+        fileVariable.setContent(FileContent.fromRangeSupplier((offset, length) -> {
+            opened.incrementAndGet();
+            return source.openStream(offset, length);
+        }, content.length));
+        return fileVariable;
+    }
+}
@@ -0,0 +1,98 @@
+package io.camunda.filestorage.storage;
+
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.FileRepoFactory;
+import io.camunda.filestorage.FileVariable;
+import io.camunda.filestorage.FileVariableReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class StorageFolderBlobsTest {
+
+    private static final byte[] CONTENT = "deduplicated content".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OTHER_CONTENT = "another content".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private StorageFolder storage;
+
+    @BeforeEach
+    void createStorage() throws Exception {
+        assumeTrue(StorageFolderBlobs.isSupported(), "hard links and unix attributes are needed");
+        storage = new StorageFolder(StorageDefinition.decodeFromString(StorageDefinition.StorageDefinitionType.FOLDER
+                + StorageDefinition.OPTION_DELIMITATEUR + StorageDefinition.OPTION_DEDUPLICATE
+                + StorageDefinition.STORAGE_DEFINITION_DELIMITATEUR + tempDir), FileRepoFactory.getInstance());
+    }
+
+    @Test
+    void sameContentIsKeptInOneBlob() throws Exception {
+        FileVariableReference first = storage.toStorage(fileVariable("first.txt", CONTENT), null);
+        FileVariableReference second = storage.toStorage(fileVariable("second.txt", CONTENT), null);
+
+        assertThat(second.storageObjectId).isEqualTo(first.storageObjectId);
+        List<Path> blobs = getBlobs();
+        assertThat(blobs).hasSize(1);
+        // the blob and the two files
+        assertThat(getLinkCount(blobs.get(0))).isEqualTo(3);
+        assertThat(storage.getStorageFolderBlobs().getBlobCreated()).isEqualTo(1);
+        assertThat(storage.getStorageFolderBlobs().getBlobReused()).isEqualTo(1);
+        assertThat(storage.fromStorage(second).getValue()).isEqualTo(CONTENT);
+
+        assertThat(storage.purgeStorage(first)).isTrue();
+        assertThat(getBlobs()).hasSize(1);
+        assertThat(getLinkCount(blobs.get(0))).isEqualTo(2);
+        assertThat(storage.fromStorage(second).getValue()).isEqualTo(CONTENT);
+
+        assertThat(storage.purgeStorage(second)).isTrue();
+        assertThat(getBlobs()).isEmpty();
+        assertThat(storage.getStorageFolderBlobs().getBlobDeleted()).isEqualTo(1);
+    }
+
+    @Test
+    void updateReleasesThePreviousContent() throws Exception {
+        FileVariableReference reference = storage.toStorage(fileVariable("updated.txt", CONTENT), null);
+        String previousHash = reference.storageObjectId;
+
+        FileVariableReference updated = storage.toStorage(fileVariable("updated.txt", OTHER_CONTENT), reference);
+
+        assertThat(updated.storageObjectId).isNotEqualTo(previousHash);
+        assertThat(updated.content).isEqualTo(reference.content);
+        List<Path> blobs = getBlobs();
+        assertThat(blobs).hasSize(1);
+        assertThat(blobs.get(0).getFileName().toString()).isEqualTo(updated.storageObjectId);
+        assertThat(getLinkCount(blobs.get(0))).isEqualTo(2);
+        assertThat(storage.fromStorage(updated).getValue()).isEqualTo(OTHER_CONTENT);
+    }
+
+    /**
+     * @return the blobs, without the files of a write in progress
+     */
+    private List<Path> getBlobs() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir.resolve(StorageFolderBlobs.BLOB_FOLDER))) {
+            return files.filter(path -> StorageFolderBlobs.isHash(path.getFileName().toString())).toList();
+        }
+    }
+
+    private static int getLinkCount(Path path) throws Exception {
+        return (Integer) Files.getAttribute(path, "unix:nlink");
+    }
+
+    private static FileVariable fileVariable(String name, byte[] value) {
+        FileVariable fileVariable = new FileVariable(new StorageDefinition(StorageDefinition.StorageDefinitionType.FOLDER));
+        fileVariable.setName(name);
+        fileVariable.setMimeType("text/plain");
+        fileVariable.setContent(FileContent.fromBytes(value));
+        return fileVariable;
+    }
+}
@@ -0,0 +1,106 @@
+package io.camunda.filestorage.storage;
+
+import io.camunda.filestorage.FileRepoFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StorageFolderSyncTest {
+
+    private static final int WRITERS = 16;
+    private static final int COMMITS_PER_WRITER = 20;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void concurrentWritersShareTheFolderSync() throws Exception {
+        StorageFolderSync storageFolderSync = new StorageFolderSync(StorageDefinition.FsyncMode.GROUP, 5);
+        CyclicBarrier start = new CyclicBarrier(WRITERS);
+
+        List<Future<?>> writers = runWriters(() -> {
+            start.await();
+            for (int i = 0; i < COMMITS_PER_WRITER; i++)
+                storageFolderSync.commit(tempDir);
+            return null;
+        });
+
+        // every commit returns
+        for (Future<?> writer : writers)
+            writer.get(30, TimeUnit.SECONDS);
+        assertThat(storageFolderSync.getCommitCount()).isEqualTo(WRITERS * COMMITS_PER_WRITER);
+        assertThat(storageFolderSync.getFolderSyncCount()).isLessThan(storageFolderSync.getCommitCount());
+    }
+
+    @Test
+    void errorReachesEveryWriterOfTheBatch() throws Exception {
+        // the first writer waits for the others: they all join its batch
+        StorageFolderSync storageFolderSync = new StorageFolderSync(StorageDefinition.FsyncMode.GROUP, 500);
+        Path missingFolder = tempDir.resolve("missing");
+        CyclicBarrier start = new CyclicBarrier(WRITERS);
+
+        List<Future<?>> writers = runWriters(() -> {
+            start.await();
+            assertThatThrownBy(() -> storageFolderSync.commit(missingFolder))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("Group commit failed");
+            return null;
+        });
+
+        for (Future<?> writer : writers)
+            writer.get(30, TimeUnit.SECONDS);
+        assertThat(storageFolderSync.getCommitCount()).isEqualTo(WRITERS);
+        assertThat(storageFolderSync.getFolderSyncCount()).isLessThan(WRITERS);
+    }
+
+    @Test
+    void staleTemporaryFilesAreDeleted() throws Exception {
+        Path staleFile = createFile(".report.pdf_42.tmp", Duration.ofHours(2));
+        Path writtenFile = createFile(".invoice.pdf_43.tmp", Duration.ZERO);
+        Path savedFile = createFile("contract.pdf", Duration.ofHours(2));
+        Files.createDirectories(tempDir.resolve("3f").resolve("a2"));
+        Path staleShardFile = createFile("3f/a2/.scan.png_44.tmp", Duration.ofHours(2));
+        StorageFolder storageFolder = new StorageFolder(StorageDefinition.decodeFromString(StorageFolder.getStorageDefinitionString(tempDir)),
+                FileRepoFactory.getInstance());
+
+        storageFolder.deleteStaleTempFiles(StorageFolder.STALE_TEMP_FILE_AGE);
+
+        assertThat(staleFile).doesNotExist();
+        assertThat(staleShardFile).doesNotExist();
+        assertThat(writtenFile).exists();
+        assertThat(savedFile).exists();
+    }
+
+    private List<Future<?>> runWriters(Callable<Void> writer) {
+        List<Future<?>> writers = new ArrayList<>();
+        try (ExecutorService executorService = Executors.newFixedThreadPool(WRITERS)) {
+            for (int i = 0; i < WRITERS; i++)
+                writers.add(executorService.submit(writer));
+        }
+        return writers;
+    }
+
+    private Path createFile(String name, Duration age) throws Exception {
+        Path path = tempDir.resolve(name);
+        Files.write(path, new byte[10]);
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(age)));
+        return path;
+    }
+}
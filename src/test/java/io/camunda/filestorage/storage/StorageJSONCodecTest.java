@@ -0,0 +1,58 @@
+package io.camunda.filestorage.storage;
+
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.FileVariable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageJSONCodecTest {
+
+    @Test
+    void compactTextIsDeflated() throws Exception {
+        byte[] value = "hello file storage ".repeat(5000).getBytes(StandardCharsets.UTF_8);
+        FileVariable fileVariable = newFileVariable("text/plain", FileContent.fromBytes(value));
+
+        String json = StorageJSONCodec.encode(fileVariable, true);
+
+        assertThat(json).contains(StorageJSONCodec.ValueCodec.DEFLATE.name());
+        assertThat(json.length()).isLessThan(value.length);
+        assertThat(StorageJSONCodec.decode(json).getValue()).isEqualTo(value);
+    }
+
+    @Test
+    void compactRandomBytesAreKeptUncompressed() throws Exception {
+        byte[] value = new byte[200_000];
+        new Random(42).nextBytes(value);
+        FileVariable fileVariable = newFileVariable("application/octet-stream", FileContent.fromBytes(value));
+
+        String json = StorageJSONCodec.encode(fileVariable, true);
+
+        assertThat(json).doesNotContain(StorageJSONCodec.ValueCodec.DEFLATE.name());
+        assertThat(StorageJSONCodec.decode(json).getValue()).isEqualTo(value);
+    }
+
+    @Test
+    void compactStreamReadOnceIsEncoded() throws Exception {
+        byte[] value = new byte[50_000];
+        new Random(7).nextBytes(value);
+        FileVariable fileVariable = newFileVariable("application/octet-stream",
+                FileContent.fromStream(new ByteArrayInputStream(value), FileContent.UNKNOWN_LENGTH));
+
+        String json = StorageJSONCodec.encode(fileVariable, true);
+
+        assertThat(StorageJSONCodec.decode(json).getValue()).isEqualTo(value);
+    }
+
+    private static FileVariable newFileVariable(String mimeType, FileContent content) {
+        FileVariable fileVariable = new FileVariable(new StorageDefinition(StorageDefinition.StorageDefinitionType.JSON));
+        fileVariable.setName("codec.bin");
+        fileVariable.setMimeType(mimeType);
+        fileVariable.setContent(content);
+        return fileVariable;
+    }
+}
@@ -0,0 +1,56 @@
+package io.camunda.filestorage.storage;
+
+import io.camunda.filestorage.FileRepoFactory;
+import io.camunda.filestorage.FileVariableReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StorageShardsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void flatAndShardedReferencesStayInTheFolder() throws Exception {
+        Path folder = tempDir.resolve("storage");
+        assertThat(StorageShards.fromReferenceContent(folder, "file.txt")).isEqualTo(folder.resolve("file.txt"));
+        assertThat(StorageShards.fromReferenceContent(folder, "3f/a2/file.txt")).isEqualTo(folder.resolve("3f").resolve("a2").resolve("file.txt"));
+    }
+
+    @Test
+    void absoluteReferenceIsRejected() {
+        Path folder = tempDir.resolve("storage");
+        String outside = tempDir.resolve("secret.txt").toAbsolutePath().toString();
+        assertThatThrownBy(() -> StorageShards.fromReferenceContent(folder, outside)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> StorageShards.fromReferenceContent(folder, "/etc/passwd")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void parentReferenceIsRejected() {
+        Path folder = tempDir.resolve("storage");
+        assertThatThrownBy(() -> StorageShards.fromReferenceContent(folder, "../secret.txt")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> StorageShards.fromReferenceContent(folder, "3f/../../../x")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> StorageShards.fromReferenceContent(folder, "..")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void purgeDoesNotDeleteOutsideTheFolder() throws Exception {
+        Path folder = Files.createDirectories(tempDir.resolve("storage"));
+        Path secret = Files.writeString(tempDir.resolve("secret.txt"), "keep me");
+
+        FileVariableReference reference = new FileVariableReference();
+        reference.storageDefinition = StorageFolder.getStorageDefinitionString(folder);
+        reference.content = "../secret.txt";
+
+        assertThatThrownBy(() -> FileRepoFactory.getInstance().purgeFileVariable(reference, null)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> FileRepoFactory.getInstance().loadFileVariable(reference, null)).isInstanceOf(IOException.class);
+        assertThat(secret).exists();
+    }
+}
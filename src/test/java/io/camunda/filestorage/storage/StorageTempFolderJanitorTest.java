@@ -0,0 +1,129 @@
+package io.camunda.filestorage.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageTempFolderJanitorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private StorageTempFolderJanitor janitor;
+
+    @BeforeEach
+    void createJanitor() {
+        janitor = new StorageTempFolderJanitor(tempDir);
+        janitor.setGracePeriod(Duration.ZERO);
+        // the sweeps are run by the test
+        janitor.setSweepInterval(Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void stopJanitor() {
+        janitor.stop();
+    }
+
+    @Test
+    void expiredFilesAreDeleted() throws Exception {
+        Path oldFile = createFile("old.bin", 10, Duration.ofHours(2));
+        Path recentFile = createFile("recent.bin", 10, Duration.ofMinutes(10));
+        janitor.setMaxAge(Duration.ofHours(1));
+
+        StorageTempFolderJanitor.SweepReport report = janitor.sweep();
+
+        assertThat(report.filesReclaimed).isEqualTo(1);
+        assertThat(report.bytesReclaimed).isEqualTo(10);
+        assertThat(oldFile).doesNotExist();
+        assertThat(recentFile).exists();
+        assertThat(janitor.getTotalBytes()).isEqualTo(10);
+    }
+
+    @Test
+    void quotaDeletesTheOldestFilesFirst() throws Exception {
+        Path[] paths = new Path[5];
+        for (int i = 0; i < paths.length; i++)
+            paths[i] = createFile("file-" + i + ".bin", 100, Duration.ofMinutes(50L - i * 10L));
+        janitor.setMaxBytes(250);
+
+        janitor.sweep();
+
+        assertThat(paths[0]).doesNotExist();
+        assertThat(paths[1]).doesNotExist();
+        assertThat(paths[2]).doesNotExist();
+        assertThat(paths[3]).exists();
+        assertThat(paths[4]).exists();
+        assertThat(janitor.getTotalBytes()).isEqualTo(200);
+        assertThat(janitor.getFilesReclaimed()).isEqualTo(3);
+    }
+
+    @Test
+    void fileModifiedDuringTheGracePeriodIsKept() throws Exception {
+        Path newFile = createFile("new.bin", 100, Duration.ZERO);
+        janitor.setGracePeriod(Duration.ofMinutes(1));
+        janitor.setMaxAge(Duration.ZERO);
+        janitor.setMaxBytes(10);
+
+        StorageTempFolderJanitor.SweepReport report = janitor.sweep();
+
+        assertThat(report.filesReclaimed).isZero();
+        assertThat(report.filesSkipped).isPositive();
+        assertThat(newFile).exists();
+    }
+
+    @Test
+    void scanContinuesAcrossTheSweeps() throws Exception {
+        for (int i = 0; i < 25; i++)
+            createFile("file-" + i + ".bin", 1, Duration.ofHours(2));
+        janitor.setMaxAge(Duration.ofHours(1));
+        janitor.setBatchSize(10);
+
+        assertThat(janitor.sweep().filesReclaimed).isEqualTo(10);
+        assertThat(janitor.getScanCompleted()).isZero();
+        assertThat(janitor.sweep().filesReclaimed).isEqualTo(10);
+        assertThat(janitor.getScanCompleted()).isZero();
+        StorageTempFolderJanitor.SweepReport report = janitor.sweep();
+        assertThat(report.filesScanned).isEqualTo(5);
+        assertThat(report.filesReclaimed).isEqualTo(5);
+        assertThat(janitor.getScanCompleted()).isEqualTo(1);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void savedFileIsCountedAtTheNextSweep() throws Exception {
+        janitor.start();
+        janitor.setBatchSize(1);
+        // completes the first scan of the empty folder
+        janitor.sweep();
+        Path saved = createFile("saved.bin", 42, Duration.ZERO);
+
+        janitor.onFileSaved(saved);
+        assertThat(janitor.getTotalBytes()).isZero();
+        janitor.sweep();
+        assertThat(janitor.getTotalBytes()).isEqualTo(42);
+
+        Files.delete(saved);
+        janitor.onFileDeleted(saved);
+        janitor.sweep();
+        assertThat(janitor.getTotalBytes()).isZero();
+    }
+
+    private Path createFile(String name, int size, Duration age) throws Exception {
+        Path path = tempDir.resolve(name);
+        Files.write(path, new byte[size]);
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(age)));
+        return path;
+    }
+}
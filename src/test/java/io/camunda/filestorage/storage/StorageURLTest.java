@@ -0,0 +1,105 @@
+package io.camunda.filestorage.storage;
+
+import com.sun.net.httpserver.HttpServer;
+import io.camunda.filestorage.FileContent;
+import io.camunda.filestorage.FileRepoFactory;
+import io.camunda.filestorage.FileVariable;
+import io.camunda.filestorage.FileVariableReference;
+import io.camunda.filestorage.url.UrlFactoryConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StorageURLTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    private final CountDownLatch stalledServer = new CountDownLatch(1);
+    private HttpServer httpServer;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        httpServer.setExecutor(Executors.newCachedThreadPool());
+        // the server accepts ranges, but ignores the Range header: it always sends the complete document
+        httpServer.createContext("/file.txt", exchange -> {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            exchange.sendResponseHeaders(200, CONTENT.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(CONTENT);
+            }
+        });
+        // the server sends the headers and the first bytes, then stops
+        httpServer.createContext("/stalled.txt", exchange -> {
+            exchange.sendResponseHeaders(200, CONTENT.length);
+            OutputStream outputStream = exchange.getResponseBody();
+            outputStream.write(CONTENT, 0, 5);
+            outputStream.flush();
+            try {
+                stalledServer.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        httpServer.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        UrlFactoryConnection.getInstance().setReadTimeout(UrlFactoryConnection.DEFAULT_READ_TIMEOUT);
+        stalledServer.countDown();
+        httpServer.stop(0);
+    }
+
+    @Test
+    void stalledBodyFailsAfterTheReadTimeout() throws Exception {
+        UrlFactoryConnection.getInstance().setReadTimeout(Duration.ofMillis(500));
+        FileVariableReference reference = new FileVariableReference();
+        reference.storageDefinition = StorageURL.getStorageDefinitionString();
+        reference.content = "http://localhost:" + httpServer.getAddress().getPort() + "/stalled.txt";
+        FileVariable fileVariable = FileRepoFactory.getInstance().loadFileVariable(reference, null);
+
+        long begin = System.nanoTime();
+        try (InputStream inputStream = fileVariable.getContent().openStream()) {
+            assertThatThrownBy(inputStream::readAllBytes).isInstanceOf(HttpTimeoutException.class);
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - begin)).isLessThan(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void rangeIsStreamedWhenTheServerIgnoresIt() throws Exception {
+        FileVariableReference reference = new FileVariableReference();
+        reference.storageDefinition = StorageURL.getStorageDefinitionString();
+        reference.content = "http://localhost:" + httpServer.getAddress().getPort() + "/file.txt";
+        FileVariable fileVariable = FileRepoFactory.getInstance().loadFileVariable(reference, null);
+        FileContent content = fileVariable.getContent();
+
+        try (InputStream inputStream = content.openStream(5, 4)) {
+            assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("5678");
+        }
+        try (InputStream inputStream = content.openStream(15, FileContent.UNKNOWN_LENGTH)) {
+            assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("fghij");
+        }
+        try (InputStream inputStream = content.openStream(50, FileContent.UNKNOWN_LENGTH)) {
+            assertThat(inputStream.readAllBytes()).isEmpty();
+        }
+        try (InputStream inputStream = content.openStream()) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(CONTENT);
+        }
+    }
+}